@@ -1,3 +1,4 @@
+import language.types.Ingredient;
 import program.DrawManager;
 import program.ExParams;
 import program.PizzaCodeSource;
@@ -12,7 +13,12 @@ public class Main {
     public static void main(String @NotNull [] args) {
         try {
             boolean showProcess = false;
+            boolean pipelined = false;
+            boolean flatAST = false;
             String imgExtension = "png";
+            int workers = 1;
+            int tileSize = 0;
+            Long seed = null;
 
             if (args.length < 1) throw new IllegalArgumentException(
                     "A pizza file path must be included");
@@ -20,11 +26,34 @@ public class Main {
                 for (int i = 1; i < args.length; i++) {
                     switch (ExParams.get(args[i])) {
                         case show -> showProcess = true;
+                        case pipeline -> pipelined = true;
+                        case flat_ast -> flatAST = true;
+                        case bilinear -> Ingredient.setSmoothScaling(true);
                         case image_extension -> {
                             if (args.length > i + 1) imgExtension = args[++i];
                             else throw new IllegalArgumentException(
                                     "Image extension must be included after explicit call of img extension");
                         }
+                        case max_pixels -> {
+                            if (args.length > i + 1) Ingredient.setMaxPixels(Long.parseLong(args[++i]));
+                            else throw new IllegalArgumentException(
+                                    "Max pixels must be included after explicit call of max pixels");
+                        }
+                        case workers -> {
+                            if (args.length > i + 1) workers = Integer.parseInt(args[++i]);
+                            else throw new IllegalArgumentException(
+                                    "Number of workers must be included after explicit call of workers");
+                        }
+                        case tile_size -> {
+                            if (args.length > i + 1) tileSize = Integer.parseInt(args[++i]);
+                            else throw new IllegalArgumentException(
+                                    "Tile size must be included after explicit call of tile size");
+                        }
+                        case seed -> {
+                            if (args.length > i + 1) seed = Long.parseLong(args[++i]);
+                            else throw new IllegalArgumentException(
+                                    "Seed must be included after explicit call of seed");
+                        }
                         case undefined -> throw new IllegalArgumentException(
                                 "%s is not recognized as a execution param".formatted(args[i]));
                     }
@@ -32,7 +61,12 @@ public class Main {
             }
 
             PizzaCodeSource program = new PizzaCodeSource(new File(args[0]), showProcess);
+            program.setPipelined(pipelined);
+            program.setFlatAST(flatAST);
+            if (seed != null) program.setSeed(seed);
             DrawManager drawer = new DrawManager(program.compile(), imgExtension);
+            drawer.setWorkers(workers);
+            drawer.setTileSize(tileSize);
             drawer.draw();
         } catch (RuntimeException e) {
             System.out.println(e.getMessage());
@@ -2,8 +2,8 @@ package compiler.lexical;
 
 import lombok.AllArgsConstructor;
 import lombok.Getter;
-
-import java.util.Arrays;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * This enum contains all lexemes used and validated in this language.
@@ -45,24 +45,79 @@ public enum Lexemes {
 
     public final String value;
 
+    /**
+     * Dispatch table for the single character lexemes, indexed by its ASCII code.
+     */
+    private static final Lexemes[] CHARACTERS = new Lexemes[128];
+
+    /**
+     * Open addressing hash table with every lexeme value, its size is a power of two big enough to
+     * keep the probe sequences short.
+     */
+    private static final Lexemes[] WORDS = new Lexemes[64];
+
+    static {
+        for (Lexemes lexeme : values()) {
+            if (lexeme.value.length() == 1)
+                CHARACTERS[lexeme.value.charAt(0)] = lexeme;
+
+            int slot = hash(lexeme.value, 0, lexeme.value.length());
+            while (WORDS[slot] != null) slot = (slot + 1) & (WORDS.length - 1);
+            WORDS[slot] = lexeme;
+        }
+    }
+
     /**
      * Get the appropriate lexeme according to any value given.
      * @param value the value to be converted to a Lexemes object.
      * @return a Lexemes value.
      */
-    public static Lexemes get(StringBuilder value) {
-        return Arrays.stream(Lexemes.values())
-                .reduce(Lexemes.LITERAL, (a, t) -> (t.value.contentEquals(value)) ? t : a);
+    public static @NotNull Lexemes get(@NotNull CharSequence value) {
+        return get(value, 0, value.length());
+    }
+
+    /**
+     * Does the same that the other, but only compares the region between start (inclusive) and
+     * end (exclusive) of the value given, so the caller does not need to copy it.
+     * @param value the sequence that contains the lexeme.
+     * @param start the first index of the lexeme.
+     * @param end the index after the last character of the lexeme.
+     * @return a Lexemes value, LITERAL if there is not a reserved word with that value.
+     */
+    public static @NotNull Lexemes get(@NotNull CharSequence value, int start, int end) {
+        int slot = hash(value, start, end);
+
+        for (Lexemes lexeme = WORDS[slot]; lexeme != null; lexeme = WORDS[slot]) {
+            if (lexeme.matches(value, start, end)) return lexeme;
+            slot = (slot + 1) & (WORDS.length - 1);
+        }
+        return Lexemes.LITERAL;
     }
 
     /**
      * Does the same that the other, but this compares with a char value.
      * @param charValue the character to be compared.
-     * @return a Lexemes value.
+     * @return a Lexemes value, or null if the character is not a lexeme.
      */
-    public static Lexemes get(char charValue) {
-        return Arrays.stream(Lexemes.values())
-                .filter(t -> (t.value.length() == 1))
-                .reduce(null, (a, t) -> (t.value.charAt(0) == charValue) ? t : a);
+    public static @Nullable Lexemes get(char charValue) {
+        return charValue < CHARACTERS.length ? CHARACTERS[charValue] : null;
+    }
+
+    private boolean matches(@NotNull CharSequence sequence, int start, int end) {
+        if (value.length() != end - start) return false;
+
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) != sequence.charAt(start + i)) return false;
+        }
+        return true;
+    }
+
+    private static int hash(@NotNull CharSequence sequence, int start, int end) {
+        int length = end - start;
+        if (length == 0) return 0;
+
+        int h = length * 31 + sequence.charAt(start);
+        h = h * 31 + sequence.charAt(end - 1);
+        return (h ^ (h >>> 5)) & (WORDS.length - 1);
     }
 }
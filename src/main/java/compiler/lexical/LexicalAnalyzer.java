@@ -4,25 +4,68 @@ import language.util.CodePosition;
 import org.jetbrains.annotations.NotNull;
 import program.PizzaCodeSource;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 /**
  * Analyze the string's characters; the string may be the code source to be interpreted.
- * The constructor splits the code when there is a '\n' character, otherwise, a line break; then
- * the lexical analyzer checks each character, if the character is not valid, throws a
- * CharUnrecognizedException
+ * The analyzer scans the code as a single sequence of characters, keeping track of the line and
+ * column while it goes through it, a line finishes with '\n', '\r' or "\r\n"; then the lexical
+ * analyzer checks each character, if the character is not valid, throws an
+ * IllegalArgumentException.
+ * Big codes are split after statements' ends (a ';' or '}' at the end of a line), and its parts are
+ * analyzed at the same time.
  */
 
 public class LexicalAnalyzer {
-    private final List<String> codeLines;
-    private final CodePosition currentPosition;
+    /**
+     * Minimum number of characters of a code to be analyzed in parallel.
+     */
+    private static final int PARALLEL_THRESHOLD = 1 << 20;
 
-    private final List<Token> tokens = new ArrayList<>();
-    private Token lastToken;
+    /**
+     * Minimum number of characters of each part analyzed in parallel.
+     */
+    private static final int MIN_PART = 1 << 18;
+
+    private final CharSequence code;
+    private final Path path;
+
+    /**
+     * Index after the last character to analyze.
+     */
+    private final int end;
+
+    /**
+     * Index of the current character in the code.
+     */
+    private int offset = 0;
+
+    /**
+     * Index of the first character in the current line, used to calculate the column.
+     */
+    private int lineStart = 0;
+
+    /**
+     * Index of the current line, starts with zero.
+     */
+    private int line = 0;
+
+    /**
+     * Receives the tokens found, while the analyzer scans the code.
+     */
+    private TokenSink tokens;
+    private Lexemes lastToken;
+
+    /**
+     * If the last call to scan found a token.
+     */
+    private boolean found = false;
 
     /**
      * The current character, while the analyzer does its work, starts with '\0'.
@@ -40,143 +83,347 @@ public class LexicalAnalyzer {
      * @throws IOException if the file associated with the source could not be open or read.
      */
     public LexicalAnalyzer(@NotNull PizzaCodeSource source) throws IOException {
-        try (BufferedReader reader = source.getBuffer()) {
-            this.codeLines = reader.lines()
-                    .toList();
-            this.currentPosition = new CodePosition(source.getPath());
-        }
+        this(source.read(), source.getPath());
+    }
+
+    /**
+     * Instance a Lexical Analyzer over code already loaded.
+     * @param code the characters of the source code.
+     * @param path the path of the source code, used by the tokens' positions.
+     */
+    public LexicalAnalyzer(@NotNull CharSequence code, Path path) {
+        this(code, path, 0, code.length(), null, false);
+    }
+
+    /**
+     * Instance a Lexical Analyzer over a part of the code, in the state that the analysis has at
+     * the part's start.
+     * Only the offsets of the tokens and lines are right, the line of the tokens starts with zero.
+     */
+    private LexicalAnalyzer(@NotNull CharSequence code, Path path, int start, int end,
+                            Lexemes lastToken, boolean isParsingText) {
+        this.code = code;
+        this.path = path;
+        this.offset = start;
+        this.lineStart = start;
+        this.end = end;
+        this.lastToken = lastToken;
+        this.isParsingText = isParsingText;
     }
 
     /**
-     * Does an analysis for each code line, checking if characters wrote on code are in alphabet defined in
+     * Does an analysis of the code, checking if characters wrote on code are in alphabet defined in
      * Lexemes enum class.
-     * @return a list of all tokens in this code.
+     * @return a buffer with all tokens in this code.
      */
-    public List<Token> analyze() {
-        codeLines.forEach(input -> {
-            currentPosition.x = 0; //restart X position,
+    public TokenBuffer analyze() {
+        if (isParallelizable()) {
+            try {
+                return analyzeInParallel();
+            } catch (RuntimeException ignored) {
+                //the code has an error, the analysis is repeated to report the first one
+            }
+        }
+        return analyzeAll();
+    }
 
-            while (currentPosition.x < input.length()) {
-                currentChar = input.charAt(currentPosition.x);
+    /**
+     * @return true if the code is big enough to be analyzed by parts at the same time, and there
+     * is more than one thread to do it.
+     */
+    public boolean isParallelizable() {
+        return code.length() >= PARALLEL_THRESHOLD && ForkJoinPool.getCommonPoolParallelism() > 1;
+    }
 
-                if (currentChar == '/')
-                    if (currentPosition.x < (input.length() - 1))
-                        if (input.charAt(currentPosition.x + 1) == '/') //if starts a commented line
-                            break;
+    private @NotNull TokenBuffer analyzeAll() {
+        TokenBuffer buffer = new TokenBuffer(code, path, Math.max(16, (end - offset) / 4));
 
-                if (Character.isWhitespace(currentChar)) checkWhitespace();
-                else if (Character.isDigit(currentChar)) checkDigit(input);
-                else if (Character.isLetter(currentChar) ||
-                        currentChar == '_') checkLetter(input);
-                else checkSpecialChar(input);
-            }
+        //scans token by token until the code ends
+        while (scan(buffer)) {
+        }
+        return buffer;
+    }
 
-            currentPosition.y++; //finally, starts with the next line
-        });
+    /**
+     * Analyzes the parts of the code in the common ForkJoin pool, each part starts after a
+     * statement, so it is analyzed as if its previous token was a ';'. Then the parts are joined
+     * in order, if the analysis of a part ended in a different state (inside a text, or after a
+     * text), the next part is analyzed again starting in that state.
+     * @return a buffer with all tokens in this code.
+     */
+    @NotNull TokenBuffer analyzeInParallel() {
+        int[] starts = split();
+        int parts = starts.length - 1;
+
+        LexicalAnalyzer[] analyzers = new LexicalAnalyzer[parts];
+        for (int i = 0; i < parts; i++)
+            analyzers[i] = new LexicalAnalyzer(code, path, starts[i], starts[i + 1],
+                    i == 0 ? null : Lexemes.SEMICOLON, false);
+
+        TokenBuffer[] buffers = IntStream.range(0, parts)
+                .parallel()
+                .mapToObj(i -> analyzers[i].analyzeAll())
+                .toArray(TokenBuffer[]::new);
+
+        for (int i = 1; i < parts; i++) {
+            LexicalAnalyzer previous = analyzers[i - 1];
+            if (!previous.isParsingText && previous.lastToken != null && previous.lastToken != Lexemes.TEXT)
+                continue;
+
+            analyzers[i] = new LexicalAnalyzer(code, path, starts[i], starts[i + 1],
+                    previous.lastToken, previous.isParsingText);
+            buffers[i] = analyzers[i].analyzeAll();
+        }
 
-        return tokens;
+        TokenBuffer buffer = new TokenBuffer(code, path, Arrays.stream(buffers).mapToInt(TokenBuffer::size).sum());
+        for (TokenBuffer part : buffers) buffer.append(part);
+        return buffer;
     }
 
-    private void add(@NotNull Token token) {
-        tokens.add(token);
-        lastToken = token;
+    /**
+     * @return the offsets where each part starts, and the code's length at the end.
+     */
+    private int @NotNull [] split() {
+        int parts = Math.min(ForkJoinPool.getCommonPoolParallelism() * 4, end / MIN_PART);
+        int[] starts = new int[parts + 1];
+        int count = 1;
+
+        for (int i = 1; i < parts; i++) {
+            int start = statementEndAfter(Math.max(end / parts * i, starts[count - 1] + 1));
+            if (start < 0) break;
+            if (start > starts[count - 1]) starts[count++] = start;
+        }
+
+        starts[count] = end;
+        return Arrays.copyOf(starts, count + 1);
+    }
+
+    /**
+     * @param from the index where the search starts.
+     * @return the index after the first ';' or '}' that is at the end of a line, or -1.
+     */
+    private int statementEndAfter(int from) {
+        for (int i = from; i < end - 1; i++) {
+            char character = code.charAt(i);
+            if ((character == ';' || character == '}') && isLineBreak(code.charAt(i + 1))) return i + 1;
+        }
+        return -1;
+    }
+
+    /**
+     * Does the same analysis that analyze method, but it is done while the tokens are read, so
+     * there is not a moment where all the tokens are in memory.
+     * @return a stream that reads the tokens of this code.
+     */
+    public TokenStream stream() {
+        return new Stream();
+    }
+
+    CharSequence getCode() {
+        return code;
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    /**
+     * Checks the characters from the current one until it finds a token or the code ends.
+     * @param sink the object that receives the token found, and the lines started meanwhile.
+     * @return true if a token was found, false if the code ended.
+     */
+    boolean scan(@NotNull TokenSink sink) {
+        tokens = sink;
+        found = false;
+
+        while (!found && offset < end) {
+            currentChar = code.charAt(offset);
+
+            if (currentChar == '/')
+                if (offset < (code.length() - 1))
+                    if (code.charAt(offset + 1) == '/') { //if starts a commented line
+                        skipComment();
+                        continue;
+                    }
+
+            if (isLineBreak(currentChar)) checkLineBreak();
+            else if (Character.isWhitespace(currentChar)) checkWhitespace();
+            else if (Character.isDigit(currentChar)) checkDigit();
+            else if (Character.isLetter(currentChar) ||
+                    currentChar == '_') checkLetter();
+            else checkSpecialChar();
+        }
+
+        return found;
+    }
+
+    private void add(@NotNull Lexemes lexeme, int start) {
+        tokens.add(lexeme, start, offset - start, line, start - lineStart);
+        lastToken = lexeme;
+        found = true;
+    }
+
+    private static boolean isLineBreak(char character) {
+        return character == '\n' || character == '\r';
+    }
+
+    private void skipComment() {
+        while (offset < code.length() && !isLineBreak(code.charAt(offset))) offset++;
+    }
+
+    private void checkLineBreak() {
+        offset++;
+        if (currentChar == '\r' && offset < code.length() && code.charAt(offset) == '\n') offset++;
+
+        lineStart = offset;
+        line++;
+        tokens.addLine(offset); //finally, starts with the next line
     }
 
     private void checkWhitespace() {
-        currentPosition.x += String.valueOf(currentChar).length();
+        offset++;
     }
 
-    private void checkDigit(String input) {
-        if (checkText(input)) return;
-        add(lexemeAsNumber(input));
+    private void checkDigit() {
+        if (checkText()) return;
+
+        int start = offset;
+        add(lexemeAsNumber(), start);
     }
 
-    private void checkLetter(String input) {
-        if (checkText(input)) return;
-        add(lexemeAsKeywordOrLiteral(input));
+    private void checkLetter() {
+        if (checkText()) return;
+
+        int start = offset;
+        add(lexemeAsKeywordOrLiteral(), start);
     }
 
-    private boolean checkText(String input) {
+    private boolean checkText() {
         if (!isParsingText) return false;
 
-        add(lexemeAsText(input));
+        int start = offset;
+        add(lexemeAsText(), start);
         return true;
     }
 
-    private void checkSpecialChar(String input) {
-        if (checkText(input)) return;
+    private void checkSpecialChar() {
+        if (checkText()) return;
 
-        add(lexemeAsSpecialChar());
-        currentPosition.x += String.valueOf(currentChar).length();
+        int start = offset;
+        Lexemes lexeme = lexemeAsSpecialChar();
+        offset++;
+        add(lexeme, start);
     }
 
-    private @NotNull Token lexemeAsNumber(@NotNull String input) {
-        CodePosition lexemePosition = currentPosition.create();
-        StringBuilder value = new StringBuilder();
-
-        while (currentPosition.x < input.length() &&
-                Character.isDigit(input.charAt(currentPosition.x))) {
-
-            value.append(input.charAt(currentPosition.x++));
+    private @NotNull Lexemes lexemeAsNumber() {
+        while (offset < code.length() &&
+                Character.isDigit(code.charAt(offset))) {
+            offset++;
         }
 
-        return new Token(
-                Lexemes.NUMBER,
-                value.toString(),
-                lexemePosition);
+        return Lexemes.NUMBER;
     }
 
-    private @NotNull Token lexemeAsKeywordOrLiteral(@NotNull String input) {
-        CodePosition lexemePosition = currentPosition.create();
-        StringBuilder value = new StringBuilder();
+    private @NotNull Lexemes lexemeAsKeywordOrLiteral() {
+        int start = offset;
 
-        while (currentPosition.x < input.length() &&
+        while (offset < code.length() &&
                 (Character.isLetterOrDigit(currentChar) ||
                         currentChar == '_')) {
-            value.append(currentChar);
 
-            if (++currentPosition.x == input.length()) break;
-            currentChar = input.charAt(currentPosition.x);
+            if (++offset == code.length()) break;
+            currentChar = code.charAt(offset);
         }
 
-        return new Token(Lexemes.get(value), value.toString(), lexemePosition);
+        return Lexemes.get(code, start, offset);
     }
 
-    private @NotNull Token lexemeAsText(@NotNull String input) {
-        CodePosition lexemePosition = currentPosition.create();
-        StringBuilder text = new StringBuilder();
-
-        while (currentPosition.x < input.length() &&
-                currentChar != '\'') {
-            text.append(input.charAt(currentPosition.x));
+    private @NotNull Lexemes lexemeAsText() {
+        while (offset < code.length() &&
+                currentChar != '\'' &&
+                !isLineBreak(currentChar)) {
 
-            if (++currentPosition.x == input.length()) break;
-            currentChar = input.charAt(currentPosition.x);
+            if (++offset == code.length()) break;
+            currentChar = code.charAt(offset);
         }
 
         isParsingText = false;
-        return new Token(
-                Lexemes.TEXT,
-                text.toString(),
-                lexemePosition);
+        return Lexemes.TEXT;
     }
 
-    private @NotNull Token lexemeAsSpecialChar() {
-        CodePosition lexemePosition = currentPosition.create();
+    private @NotNull Lexemes lexemeAsSpecialChar() {
         Lexemes lexeme = Lexemes.get(currentChar);
 
         if (Objects.isNull(lexeme))
             throw new IllegalArgumentException(
                     "Character '%s' is not recognized, at %s"
-                            .formatted(currentChar, lexemePosition));
+                            .formatted(currentChar, new CodePosition(offset - lineStart, line, path)));
 
         if (lexeme == Lexemes.SINGLE_QUOTE && lastToken != null)
-            if (!lastToken.is(Lexemes.TEXT))
+            if (lastToken != Lexemes.TEXT)
                 isParsingText = true;
 
-        return new Token(
-                lexeme,
-                String.valueOf(currentChar),
-                lexemePosition);
+        return lexeme;
+    }
+
+    /**
+     * Reads the tokens while the code is scanned, keeping only the current and the next token.
+     */
+    private class Stream implements TokenStream, TokenSink {
+        private Lexemes currentType, nextType;
+        private int currentOffset, currentLength, currentLine, currentColumn;
+        private int nextOffset, nextLength, nextLine, nextColumn;
+
+        /**
+         * If the next token was already scanned.
+         */
+        private boolean scanned = false;
+
+        @Override
+        public void add(@NotNull Lexemes type, int offset, int length, int line, int column) {
+            nextType = type;
+            nextOffset = offset;
+            nextLength = length;
+            nextLine = line;
+            nextColumn = column;
+        }
+
+        @Override
+        public Lexemes peek() {
+            if (!scanned) {
+                if (!scan(this)) nextType = null;
+                scanned = true;
+            }
+            return nextType;
+        }
+
+        @Override
+        public @NotNull Lexemes next() {
+            if (peek() == null) throw new NoSuchElementException("There are not more tokens");
+
+            currentType = nextType;
+            currentOffset = nextOffset;
+            currentLength = nextLength;
+            currentLine = nextLine;
+            currentColumn = nextColumn;
+            scanned = false;
+
+            return currentType;
+        }
+
+        @Override
+        public @NotNull Lexemes type() {
+            return currentType;
+        }
+
+        @Override
+        public @NotNull String text() {
+            return TokenBuffer.text(currentType, code, currentOffset, currentLength);
+        }
+
+        @Override
+        public @NotNull CodePosition position() {
+            return new CodePosition(currentColumn, currentLine, path);
+        }
     }
 }
@@ -0,0 +1,223 @@
+package compiler.lexical;
+
+import language.util.CodePosition;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Compact storage for all tokens of a source code.
+ * Instead of keeping a Token object per token, this buffer keeps the lexeme, offset and length of
+ * each token in primitive arrays, and the offsets where each line starts; a token's text and its
+ * position are created only when they are requested.
+ */
+public class TokenBuffer implements Iterable<Token>, TokenSink {
+    private static final Lexemes[] LEXEMES = Lexemes.values();
+
+    private final CharSequence code;
+    private final Path path;
+
+    private int[] types;
+    private int[] offsets;
+    private int[] lengths;
+    private int size = 0;
+
+    /**
+     * Offsets of the first character of each line, the first line always starts at zero.
+     */
+    private int[] lineStarts = new int[64];
+    private int lines = 1;
+
+    /**
+     * @param code the source code that contains the tokens.
+     * @param path the path of the source code, used by the tokens' positions.
+     */
+    public TokenBuffer(@NotNull CharSequence code, Path path) {
+        this(code, path, Math.max(16, code.length() / 4));
+    }
+
+    /**
+     * @param code the source code that contains the tokens.
+     * @param path the path of the source code, used by the tokens' positions.
+     * @param capacity the number of tokens that the buffer can keep before growing.
+     */
+    TokenBuffer(@NotNull CharSequence code, Path path, int capacity) {
+        this.code = code;
+        this.path = path;
+
+        capacity = Math.max(1, capacity);
+        this.types = new int[capacity];
+        this.offsets = new int[capacity];
+        this.lengths = new int[capacity];
+    }
+
+    /**
+     * Adds a token at the end of this buffer.
+     * @param type the lexeme of the token.
+     * @param offset the index in the code of the token's first character.
+     * @param length the number of characters of the token.
+     */
+    public void add(@NotNull Lexemes type, int offset, int length) {
+        if (size == types.length) grow(size + 1);
+
+        types[size] = type.ordinal();
+        offsets[size] = offset;
+        lengths[size] = length;
+        size++;
+    }
+
+    @Override
+    public void add(@NotNull Lexemes type, int offset, int length, int line, int column) {
+        add(type, offset, length);
+    }
+
+    /**
+     * Registers that a new line starts in the given offset, lines must be registered in order.
+     * @param offset the index in the code of the line's first character.
+     */
+    @Override
+    public void addLine(int offset) {
+        if (lines == lineStarts.length)
+            lineStarts = Arrays.copyOf(lineStarts, lines * 2);
+        lineStarts[lines++] = offset;
+    }
+
+    /**
+     * Adds the tokens and lines of other buffer of the same code at the end of this buffer, the
+     * other buffer must have been filled with the code that follows this buffer's code.
+     * @param other a buffer that does not have the line that starts at zero.
+     */
+    void append(@NotNull TokenBuffer other) {
+        if (size + other.size > types.length) grow(size + other.size);
+
+        System.arraycopy(other.types, 0, types, size, other.size);
+        System.arraycopy(other.offsets, 0, offsets, size, other.size);
+        System.arraycopy(other.lengths, 0, lengths, size, other.size);
+        size += other.size;
+
+        for (int i = 1; i < other.lines; i++) addLine(other.lineStarts[i]);
+    }
+
+    private void grow(int minCapacity) {
+        int capacity = Math.max(minCapacity, size + (size >> 1));
+        types = Arrays.copyOf(types, capacity);
+        offsets = Arrays.copyOf(offsets, capacity);
+        lengths = Arrays.copyOf(lengths, capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public @NotNull Lexemes type(int index) {
+        return LEXEMES[types[checkIndex(index)]];
+    }
+
+    public boolean is(int index, @NotNull Lexemes lexeme) {
+        return types[checkIndex(index)] == lexeme.ordinal();
+    }
+
+    /**
+     * Reserved words and special characters always have the lexeme's value as text, so only
+     * literals, texts and numbers are copied from the code.
+     * @param index the token's index.
+     * @return the text of the token.
+     */
+    public @NotNull String text(int index) {
+        return text(type(index), code, offsets[index], lengths[index]);
+    }
+
+    static @NotNull String text(@NotNull Lexemes type, @NotNull CharSequence code, int offset, int length) {
+        return switch (type) {
+            case LITERAL, TEXT, NUMBER -> code.subSequence(offset, offset + length).toString();
+            default -> type.value;
+        };
+    }
+
+    /**
+     * @param index the token's index.
+     * @return a new object with the row and column of the token.
+     */
+    public @NotNull CodePosition position(int index) {
+        int offset = offsets[checkIndex(index)];
+        int line = Arrays.binarySearch(lineStarts, 0, lines, offset);
+
+        if (line < 0) line = -line - 2; //the line that starts before the offset
+
+        return new CodePosition(offset - lineStarts[line], line, path);
+    }
+
+    /**
+     * @param index the token's index.
+     * @return a token object with the information of the token in that index.
+     */
+    public @NotNull Token get(int index) {
+        return new Token(type(index), text(index), position(index));
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Token %s out of bounds for %s tokens".formatted(index, size));
+        return index;
+    }
+
+    /**
+     * @return a stream that reads the tokens of this buffer from the first one.
+     */
+    public @NotNull TokenStream stream() {
+        return new TokenStream() {
+            private int current = -1;
+
+            @Override
+            public Lexemes peek() {
+                return current + 1 < size ? TokenBuffer.this.type(current + 1) : null;
+            }
+
+            @Override
+            public @NotNull Lexemes next() {
+                if (current + 1 >= size) throw new NoSuchElementException("There are not more tokens");
+                return TokenBuffer.this.type(++current);
+            }
+
+            @Override
+            public @NotNull Lexemes type() {
+                return TokenBuffer.this.type(current);
+            }
+
+            @Override
+            public @NotNull String text() {
+                return TokenBuffer.this.text(current);
+            }
+
+            @Override
+            public @NotNull CodePosition position() {
+                return TokenBuffer.this.position(current);
+            }
+        };
+    }
+
+    @Override
+    public @NotNull Iterator<Token> iterator() {
+        return new Iterator<>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public Token next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return get(next++);
+            }
+        };
+    }
+}
@@ -0,0 +1,233 @@
+package compiler.lexical;
+
+import language.util.CodePosition;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.file.Path;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Token stream where the lexical analysis runs in its own thread.
+ * The analyzer writes the tokens in a bounded ring buffer while the reader (the parser) takes them
+ * out, so both analysis work at the same time and only the tokens in the ring are in memory.
+ * The tokens are exchanged in batches to avoid synchronizing both threads on every token.
+ * If the analyzer fails, its exception is thrown to the reader once it reaches the failed token.
+ */
+public class TokenPipeline implements TokenStream, TokenSink {
+    private static final int CAPACITY = 4096;
+    private static final int BATCH = 64;
+
+    private final CharSequence code;
+    private final Path path;
+
+    private final int[] types = new int[CAPACITY];
+    private final int[] offsets = new int[CAPACITY];
+    private final int[] lengths = new int[CAPACITY];
+    private final int[] lines = new int[CAPACITY];
+    private final int[] columns = new int[CAPACITY];
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+
+    //guarded by lock
+    private long published = 0;
+    private long released = 0;
+    private boolean finished = false;
+    private boolean closed = false;
+    private RuntimeException failure;
+
+    //used only by the analyzer's thread
+    private long produced = 0;
+    private long releasedByReader = 0;
+
+    //used only by the reader's thread
+    private long consumed = 0;
+    private long publishedByAnalyzer = 0;
+    private Lexemes currentType;
+    private int currentOffset, currentLength, currentLine, currentColumn;
+
+    private static final Lexemes[] LEXEMES = Lexemes.values();
+
+    private TokenPipeline(@NotNull LexicalAnalyzer analyzer) {
+        this.code = analyzer.getCode();
+        this.path = analyzer.getPath();
+    }
+
+    /**
+     * Starts the analysis of the code in a new thread.
+     * @param analyzer the analyzer that has not read any token yet.
+     * @return the stream that reads the tokens found by the analyzer.
+     */
+    @Contract("_ -> new")
+    public static @NotNull TokenPipeline start(@NotNull LexicalAnalyzer analyzer) {
+        TokenPipeline pipeline = new TokenPipeline(analyzer);
+
+        Thread thread = new Thread(() -> pipeline.produce(analyzer), "pizza-lexer");
+        thread.setDaemon(true);
+        thread.start();
+
+        return pipeline;
+    }
+
+    private void produce(@NotNull LexicalAnalyzer analyzer) {
+        RuntimeException error = null;
+
+        try {
+            //scans token by token until the code ends
+            while (analyzer.scan(this)) {
+            }
+        } catch (Closed ignored) {
+        } catch (RuntimeException e) {
+            error = e;
+        }
+
+        lock.lock();
+        try {
+            published = produced;
+            failure = error;
+            finished = true;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void add(@NotNull Lexemes type, int offset, int length, int line, int column) {
+        if (produced - releasedByReader == CAPACITY) waitForSpace();
+
+        int slot = (int) (produced % CAPACITY);
+        types[slot] = type.ordinal();
+        offsets[slot] = offset;
+        lengths[slot] = length;
+        lines[slot] = line;
+        columns[slot] = column;
+
+        if (++produced % BATCH == 0) publish();
+    }
+
+    private void publish() {
+        lock.lock();
+        try {
+            published = produced;
+            releasedByReader = released;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void waitForSpace() {
+        lock.lock();
+        try {
+            published = produced;
+            notEmpty.signal();
+
+            while (produced - released == CAPACITY && !closed)
+                notFull.awaitUninterruptibly();
+
+            if (closed) throw new Closed();
+            releasedByReader = released;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release() {
+        lock.lock();
+        try {
+            released = consumed;
+            notFull.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until there are more tokens published or the analysis ends.
+     * @return false if the analysis ended and all its tokens were read.
+     */
+    private boolean waitForTokens() {
+        lock.lock();
+        try {
+            released = consumed;
+            notFull.signal();
+
+            while (published == consumed && !finished)
+                notEmpty.await();
+
+            publishedByAnalyzer = published;
+            if (consumed < publishedByAnalyzer) return true;
+            if (failure != null) throw failure;
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("The token pipeline was interrupted", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Lexemes peek() {
+        if (consumed == publishedByAnalyzer && !waitForTokens()) return null;
+        return LEXEMES[types[(int) (consumed % CAPACITY)]];
+    }
+
+    @Override
+    public @NotNull Lexemes next() {
+        if (peek() == null) throw new NoSuchElementException("There are not more tokens");
+
+        int slot = (int) (consumed % CAPACITY);
+        currentType = LEXEMES[types[slot]];
+        currentOffset = offsets[slot];
+        currentLength = lengths[slot];
+        currentLine = lines[slot];
+        currentColumn = columns[slot];
+
+        if (++consumed % BATCH == 0) release();
+        return currentType;
+    }
+
+    @Override
+    public @NotNull Lexemes type() {
+        return currentType;
+    }
+
+    @Override
+    public @NotNull String text() {
+        return TokenBuffer.text(currentType, code, currentOffset, currentLength);
+    }
+
+    @Override
+    public @NotNull CodePosition position() {
+        return new CodePosition(currentColumn, currentLine, path);
+    }
+
+    /**
+     * Stops the analysis if it has not ended yet.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Thrown inside the analyzer's thread to stop it when the pipeline is closed.
+     */
+    private static class Closed extends RuntimeException {
+        Closed() {
+            super(null, null, false, false);
+        }
+    }
+}
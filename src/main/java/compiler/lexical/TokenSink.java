@@ -0,0 +1,24 @@
+package compiler.lexical;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Receives the tokens found by the lexical analyzer, in the same order they are in the code.
+ */
+interface TokenSink {
+    /**
+     * @param type the lexeme of the token.
+     * @param offset the index in the code of the token's first character.
+     * @param length the number of characters of the token.
+     * @param line the index of the token's line.
+     * @param column the index of the token's first character in its line.
+     */
+    void add(@NotNull Lexemes type, int offset, int length, int line, int column);
+
+    /**
+     * Called when a new line starts in the given offset.
+     * @param offset the index in the code of the line's first character.
+     */
+    default void addLine(int offset) {
+    }
+}
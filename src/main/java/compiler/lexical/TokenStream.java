@@ -0,0 +1,46 @@
+package compiler.lexical;
+
+import language.util.CodePosition;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Source of tokens that are read one by one, with one token of lookahead.
+ * The stream only knows the current token (the last one read) and the next one, so the tokens
+ * that were already read can be discarded.
+ */
+public interface TokenStream extends AutoCloseable {
+    /**
+     * @return the lexeme of the next token without reading it, or null if there are no more tokens.
+     */
+    @Nullable Lexemes peek();
+
+    /**
+     * Reads the next token, then it becomes the current token.
+     * @return the lexeme of the token read.
+     * @throws java.util.NoSuchElementException if there are no more tokens.
+     */
+    @NotNull Lexemes next();
+
+    /**
+     * @return the lexeme of the current token.
+     */
+    @NotNull Lexemes type();
+
+    /**
+     * @return the text of the current token.
+     */
+    @NotNull String text();
+
+    /**
+     * @return a new object with the position of the current token.
+     */
+    @NotNull CodePosition position();
+
+    /**
+     * Releases the resources used to produce the tokens, the stream cannot be read after this.
+     */
+    @Override
+    default void close() {
+    }
+}
@@ -0,0 +1,110 @@
+package compiler.parser;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of the nodes of a program by their expression type.
+ * The nodes are numbered in preorder, so the nodes in a subtree are the ones numbered from the
+ * subtree's root to its last node; and each type has its nodes ordered by their number, then
+ * the nodes of a type in a subtree are found with a binary search.
+ * The index is no longer valid once a node is added to the tree.
+ */
+class ASTIndex {
+    private final Map<Expressions, List<ASTNode>> nodes = new EnumMap<>(Expressions.class);
+    private boolean valid = true;
+
+    private ASTIndex() {
+    }
+
+    /**
+     * Numbers the nodes of a tree and indexes them, the tree is walked without recursion.
+     *
+     * @param root the root of the tree, usually the program node.
+     */
+    static void build(@NotNull ASTNode root) {
+        ASTIndex index = new ASTIndex();
+        List<ASTNode> preorder = new ArrayList<>();
+
+        Deque<ASTNode> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            ASTNode node = pending.pop();
+            node.index = index;
+            node.order = preorder.size();
+            node.childTypes = 0;
+            preorder.add(node);
+            index.nodes.computeIfAbsent(node.type, t -> new ArrayList<>()).add(node);
+
+            List<ASTNode> children = node.children();
+            for (int i = children.size() - 1; i >= 0; i--) {
+                node.childTypes |= bit(children.get(i).type);
+                pending.push(children.get(i));
+            }
+        }
+
+        //the children are numbered after their father, so they get their last node first
+        for (int i = preorder.size() - 1; i >= 0; i--) {
+            ASTNode node = preorder.get(i);
+            List<ASTNode> children = node.children();
+            node.last = children.isEmpty() ? node.order : children.get(children.size() - 1).last;
+        }
+    }
+
+    static int bit(@NotNull Expressions type) {
+        return 1 << type.ordinal();
+    }
+
+    boolean isValid() {
+        return valid;
+    }
+
+    void invalidate() {
+        valid = false;
+    }
+
+    /**
+     * Finds the nodes that ASTNode's find would find, the nodes of the type in the subtree are
+     * found by the index; each one is found if its father is the first node, in its way from the
+     * subtree's root, that has children of the type.
+     *
+     * @param root the subtree's root, it does not have children of the type.
+     * @param type the expression type to be found.
+     * @return a list with the nodes found, ordered by their number.
+     */
+    @NotNull List<ASTNode> find(@NotNull ASTNode root, @NotNull Expressions type) {
+        List<ASTNode> found = new ArrayList<>();
+        List<ASTNode> typeNodes = nodes.get(type);
+        if (typeNodes == null) return found;
+
+        int typeBit = bit(type);
+        for (int i = firstAfter(typeNodes, root.order); i < typeNodes.size(); i++) {
+            ASTNode node = typeNodes.get(i);
+            if (node.order > root.last) break;
+
+            boolean reached = true;
+            for (ASTNode way = node.father.father; way != root && reached; way = way.father)
+                reached = (way.childTypes & typeBit) == 0;
+
+            if (reached) found.add(node);
+        }
+        return found;
+    }
+
+    private static int firstAfter(@NotNull List<ASTNode> typeNodes, int order) {
+        int low = 0, high = typeNodes.size();
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (typeNodes.get(middle).order <= order) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+}
@@ -7,14 +7,15 @@ import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Unmodifiable;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Deque;
 import java.util.List;
 
 /**
  * Defines a root of the ASTNode (Abstract Syntax Tree).
  */
-public class ASTNode {
+public class ASTNode implements SyntaxNode {
     @Getter
     protected Object value;
     @Getter
@@ -26,6 +27,21 @@ public class ASTNode {
     protected ASTNode father;
     private final List<ASTNode> children = new ArrayList<>();
 
+    /**
+     * The index of the nodes of this node's tree, null while the tree is being built.
+     */
+    ASTIndex index;
+
+    /**
+     * The number of this node in preorder, and the number of the last node in its subtree.
+     */
+    int order, last;
+
+    /**
+     * Bits of the types of this node's children, by their ordinal.
+     */
+    int childTypes;
+
     protected ASTNode(@NotNull Expressions type, @NotNull Object value, @NotNull CodePosition position) {
         this.type = type;
         this.value = value;
@@ -59,6 +75,22 @@ public class ASTNode {
     protected void add(ASTNode child) {
         children.add(child);
         child.father = this;
+
+        if (index != null) index.invalidate();
+    }
+
+    /**
+     * Replaces a child of this node, the old child is no longer in the tree.
+     *
+     * @param childIndex the position of the child in this node's children.
+     * @param child the node object that takes the old child's place.
+     */
+    void replace(int childIndex, @NotNull ASTNode child) {
+        ASTNode old = children.set(childIndex, child);
+        old.father = null;
+        child.father = this;
+
+        if (index != null) index.invalidate();
     }
 
     /**
@@ -68,13 +100,14 @@ public class ASTNode {
      * @return true if there is one coincidence, else false.
      */
     public boolean is(Expressions... expressions) {
-        return Arrays.stream(expressions)
-                .map(type::equals)
-                .reduce(false, Boolean::logicalOr);
+        for (Expressions expression : expressions)
+            if (type == expression) return true;
+        return false;
     }
 
     /**
      * Checks if there is a root in this node that has the Expression type given.
+     * If the tree is indexed, the nodes are found by the index instead of walking the tree.
      *
      * @param type the expression type to be found.
      * @return a list with all nodes that has the type given, empty if there is not any with that
@@ -82,14 +115,36 @@ public class ASTNode {
      */
     @Contract("_ -> new")
     public List<ASTNode> find(Expressions type) {
-        var filter = children.stream()
-                .filter(c -> c.type.equals(type))
-                .toList();
-
-        if (!filter.isEmpty()) return filter;
-        return children.stream()
-                .flatMap(c -> c.find(type).stream())
-                .toList();
+        if (index == null || !index.isValid()) return walk(type);
+
+        if ((childTypes & ASTIndex.bit(type)) != 0)
+            return children.stream()
+                    .filter(c -> c.type.equals(type))
+                    .toList();
+        return index.find(this, type);
+    }
+
+    /**
+     * Finds the nodes walking the tree with a stack: a node with children of the type given adds
+     * them, otherwise, its children are searched.
+     */
+    private List<ASTNode> walk(Expressions type) {
+        List<ASTNode> found = new ArrayList<>();
+        Deque<ASTNode> pending = new ArrayDeque<>();
+        pending.push(this);
+
+        while (!pending.isEmpty()) {
+            ASTNode node = pending.pop();
+            int size = found.size();
+
+            for (ASTNode child : node.children)
+                if (child.type.equals(type)) found.add(child);
+            if (found.size() > size) continue;
+
+            for (int i = node.children.size() - 1; i >= 0; i--) pending.push(node.children.get(i));
+        }
+
+        return found;
     }
 
     /**
@@ -124,15 +179,29 @@ public class ASTNode {
         return current;
     }
 
-    private @NotNull String formatNode(int depth) {
+    /**
+     * Formats this node and its children, each one in a line with a tab per level; the tree is
+     * walked with a stack, so a deep tree does not overflow the call stack.
+     */
+    private @NotNull String formatNode() {
         StringBuilder result = new StringBuilder();
-        result.append("\t".repeat(depth));
-        result.append("- [c:%s; f:%s] %s".formatted(position.y + 1, position.x + 1, type));
-        result.append(":%s".formatted(value));
-
-        if (!children.isEmpty()) {
-            for (ASTNode child : children) {
-                result.append("\n").append(child.formatNode(depth + 1));
+        Deque<ASTNode> pending = new ArrayDeque<>();
+        Deque<Integer> depths = new ArrayDeque<>();
+        pending.push(this);
+        depths.push(0);
+
+        while (!pending.isEmpty()) {
+            ASTNode node = pending.pop();
+            int depth = depths.pop();
+
+            if (node != this) result.append("\n");
+            result.append("\t".repeat(depth));
+            result.append("- [c:%s; f:%s] %s".formatted(node.position.y + 1, node.position.x + 1, node.type));
+            result.append(":%s".formatted(node.value));
+
+            for (int i = node.children.size() - 1; i >= 0; i--) {
+                pending.push(node.children.get(i));
+                depths.push(depth + 1);
             }
         }
 
@@ -141,7 +210,7 @@ public class ASTNode {
 
     @Override
     public String toString() {
-        return formatNode(0);
+        return formatNode();
     }
 
     public static class EmptyASTException extends RuntimeException {
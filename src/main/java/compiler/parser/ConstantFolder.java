@@ -0,0 +1,154 @@
+package compiler.parser;
+
+import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Optimization pass done between the parsing and the semantic analysis.
+ * Each arithmetic operation in the tree is evaluated once and replaced by a number node with its
+ * result, so the operation's nodes are no longer in memory and the semantic analysis only reads
+ * numbers. A division by zero or a result out of the int range is thrown as a FoldException with
+ * its node, so the semantic analyzer reports it at its position.
+ */
+public class ConstantFolder {
+    private ConstantFolder() {
+    }
+
+    /**
+     * Replaces the operations of a tree by their results, if any operation is replaced, the tree
+     * is indexed again.
+     *
+     * @param root the root of the tree, usually the program node.
+     * @return the number of operations replaced.
+     */
+    public static int fold(@NotNull ASTNode root) {
+        int folded = 0;
+        Deque<ASTNode> pending = new ArrayDeque<>();
+        pending.push(root);
+
+        while (!pending.isEmpty()) {
+            ASTNode node = pending.pop();
+            List<ASTNode> children = node.children();
+
+            for (int i = 0; i < children.size(); i++) {
+                ASTNode child = children.get(i);
+
+                if (isOperator(child)) {
+                    node.replace(i, evaluate(child));
+                    folded++;
+                } else pending.push(child);
+            }
+        }
+
+        if (folded > 0) ASTIndex.build(root);
+        return folded;
+    }
+
+    private static boolean isOperator(@NotNull ASTNode node) {
+        return node.is(Expressions.PLUS, Expressions.MINUS, Expressions.MULTIPLY, Expressions.DIVIDE);
+    }
+
+    /**
+     * Evaluates an operation without recursion, the nodes are ordered in postorder and evaluated
+     * with a stack of numbers.
+     *
+     * @param operationNode the root of the operation.
+     * @return a number node with the result, at the position of the operation's first number.
+     * @throws FoldException if there is a division by zero or a number out of the int range.
+     */
+    private static @NotNull ASTNode evaluate(@NotNull ASTNode operationNode) {
+        List<ASTNode> nodes = new ArrayList<>();
+        Deque<ASTNode> pending = new ArrayDeque<>();
+        pending.push(operationNode);
+
+        //the nodes are visited root, right, left; so in reverse they are in postorder
+        while (!pending.isEmpty()) {
+            ASTNode node = pending.pop();
+            nodes.add(node);
+
+            if (isOperator(node)) {
+                pending.push(node.left());
+                pending.push(node.right());
+            }
+        }
+
+        int[] numbers = new int[nodes.size()];
+        int size = 0;
+        for (int i = nodes.size() - 1; i >= 0; i--) {
+            ASTNode node = nodes.get(i);
+
+            switch (node.getType()) {
+                case NUMBER -> numbers[size++] = number(node);
+                case PLUS, MINUS, MULTIPLY, DIVIDE -> {
+                    int right = numbers[--size];
+                    numbers[size - 1] = operate(node, numbers[size - 1], right);
+                }
+                default -> throw new FoldException(FoldException.Case.NOT_OPERATOR, node);
+            }
+        }
+
+        ASTNode first = operationNode;
+        while (isOperator(first)) first = first.left();
+
+        return new ASTNode(Expressions.NUMBER, String.valueOf(numbers[0]), first.getPosition());
+    }
+
+    /**
+     * Reads a number node, used too by the semantic analysis, since a lone number is never folded.
+     *
+     * @param numberNode a node of type NUMBER.
+     * @return the value of the node.
+     * @throws FoldException if the number is out of the int range.
+     */
+    public static int number(@NotNull SyntaxNode numberNode) {
+        try {
+            return Integer.parseInt(numberNode.getValue().toString());
+        } catch (NumberFormatException e) {
+            throw new FoldException(FoldException.Case.OVERFLOW, numberNode);
+        }
+    }
+
+    private static int operate(@NotNull ASTNode operatorNode, int left, int right) {
+        try {
+            return switch (operatorNode.getType()) {
+                case PLUS -> Math.addExact(left, right);
+                case MINUS -> Math.subtractExact(left, right);
+                case MULTIPLY -> Math.multiplyExact(left, right);
+                case DIVIDE -> {
+                    if (right == 0) throw new FoldException(FoldException.Case.DIVISION_BY_ZERO, operatorNode);
+                    if (left == Integer.MIN_VALUE && right == -1) throw new ArithmeticException();
+                    yield left / right;
+                }
+                default -> throw new FoldException(FoldException.Case.NOT_OPERATOR, operatorNode);
+            };
+        } catch (ArithmeticException e) {
+            throw new FoldException(FoldException.Case.OVERFLOW, operatorNode);
+        }
+    }
+
+    /**
+     * An operation that cannot be evaluated, with the node where it fails.
+     */
+    @Getter
+    public static class FoldException extends RuntimeException {
+        private final Case reason;
+        private final SyntaxNode node;
+
+        public FoldException(@NotNull Case reason, @NotNull SyntaxNode node) {
+            super("Couldn't evaluate %s located at %s: %s".formatted(node.getType(), node.getPosition(), reason));
+            this.reason = reason;
+            this.node = node;
+        }
+
+        public enum Case {
+            OVERFLOW,
+            DIVISION_BY_ZERO,
+            NOT_OPERATOR,
+        }
+    }
+}
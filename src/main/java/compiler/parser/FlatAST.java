@@ -0,0 +1,332 @@
+package compiler.parser;
+
+import language.util.CodePosition;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact representation of a syntax tree.
+ * Instead of an object per node with a list of children, the nodes live in parallel primitive
+ * arrays indexed by the node's number: its type, first child, next sibling, father, value and
+ * position. The values are kept once in a pool, so nodes with the same text share it; all the
+ * nodes are in the same source code, so its path is kept once too.
+ * The nodes are numbered in preorder, the root is the node zero; and they are read through Node
+ * views that are created only when they are requested.
+ * The tree is indexed as an ASTNode tree is, each type has its nodes ordered by number, and each
+ * node knows the last node of its subtree, so the nodes of a type are found with a binary search.
+ */
+public class FlatAST {
+    private static final Expressions[] EXPRESSIONS = Expressions.values();
+    private static final int NONE = -1;
+
+    private final Path path;
+
+    private final byte[] types;
+    private final int[] firstChildren;
+    private final int[] nextSiblings;
+    private final int[] fathers;
+    private final int[] values;
+    private final int[] lines;
+    private final int[] columns;
+
+    /**
+     * The number of the last node in each node's subtree.
+     */
+    private final int[] ends;
+
+    /**
+     * Bits of the types of each node's children, by their ordinal.
+     */
+    private final int[] childTypes;
+
+    /**
+     * The nodes ordered by type and then by number, the nodes of a type start at its position in
+     * typeStarts.
+     */
+    private final int[] byType;
+    private final int[] typeStarts = new int[EXPRESSIONS.length + 1];
+
+    private final Object[] valuePool;
+
+    private FlatAST(int size, Path path, Object[] valuePool) {
+        this.path = path;
+        this.types = new byte[size];
+        this.firstChildren = new int[size];
+        this.nextSiblings = new int[size];
+        this.fathers = new int[size];
+        this.values = new int[size];
+        this.lines = new int[size];
+        this.columns = new int[size];
+        this.ends = new int[size];
+        this.childTypes = new int[size];
+        this.byType = new int[size];
+        this.valuePool = valuePool;
+    }
+
+    /**
+     * Copies a tree into a flat tree, the tree is walked without recursion.
+     * Both trees are in memory while the copy is made, so the memory used at most by the
+     * compilation is not lower; only the memory kept once the given tree is no longer used.
+     *
+     * @param root the root of the tree, usually the program node.
+     * @return the flat tree with the same nodes.
+     */
+    @Contract("_ -> new")
+    public static @NotNull FlatAST of(@NotNull ASTNode root) {
+        Map<Object, Integer> pool = new HashMap<>();
+        List<Object> poolValues = new ArrayList<>();
+
+        //the nodes are walked in preorder, each one with its father's number
+        Deque<ASTNode> pending = new ArrayDeque<>();
+        Deque<Integer> pendingFathers = new ArrayDeque<>();
+        List<ASTNode> nodes = new ArrayList<>();
+        List<Integer> fathers = new ArrayList<>();
+        pending.push(root);
+        pendingFathers.push(NONE);
+        while (!pending.isEmpty()) {
+            ASTNode node = pending.pop();
+            int index = nodes.size();
+            nodes.add(node);
+            fathers.add(pendingFathers.pop());
+
+            List<ASTNode> children = node.children();
+            for (int i = children.size() - 1; i >= 0; i--) {
+                pending.push(children.get(i));
+                pendingFathers.push(index);
+            }
+        }
+
+        int[] poolIndexes = new int[nodes.size()];
+        for (int i = 0; i < nodes.size(); i++) {
+            poolIndexes[i] = pool.computeIfAbsent(nodes.get(i).getValue(), value -> {
+                poolValues.add(value);
+                return poolValues.size() - 1;
+            });
+        }
+
+        FlatAST ast = new FlatAST(nodes.size(), root.getPosition().sourceCodePath, poolValues.toArray());
+        Arrays.fill(ast.firstChildren, NONE);
+        Arrays.fill(ast.nextSiblings, NONE);
+
+        //the nodes are in preorder, so the siblings are linked in the order they are visited
+        int[] lastChildren = new int[nodes.size()];
+        for (int i = 0; i < nodes.size(); i++) {
+            ASTNode node = nodes.get(i);
+
+            ast.types[i] = (byte) node.getType().ordinal();
+            ast.values[i] = poolIndexes[i];
+            ast.lines[i] = node.getPosition().y;
+            ast.columns[i] = node.getPosition().x;
+
+            int father = fathers.get(i);
+            ast.fathers[i] = father;
+            if (father == NONE) continue;
+
+            if (ast.firstChildren[father] == NONE) ast.firstChildren[father] = i;
+            else ast.nextSiblings[lastChildren[father]] = i;
+            lastChildren[father] = i;
+            ast.childTypes[father] |= ASTIndex.bit(node.getType());
+        }
+
+        ast.index();
+        return ast;
+    }
+
+    private void index() {
+        //the children are numbered after their father, so they get their last node first
+        for (int i = types.length - 1; i >= 0; i--) {
+            if (ends[i] < i) ends[i] = i;
+            if (fathers[i] != NONE && ends[fathers[i]] < ends[i]) ends[fathers[i]] = ends[i];
+        }
+
+        for (byte type : types) typeStarts[type + 1]++;
+        for (int t = 0; t < EXPRESSIONS.length; t++) typeStarts[t + 1] += typeStarts[t];
+
+        int[] next = Arrays.copyOf(typeStarts, EXPRESSIONS.length);
+        for (int i = 0; i < types.length; i++) byType[next[types[i]]++] = i;
+    }
+
+    /**
+     * @return the number of nodes in this tree.
+     */
+    public int size() {
+        return types.length;
+    }
+
+    /**
+     * @return the view of the node zero.
+     */
+    public @NotNull Node root() {
+        return new Node(0);
+    }
+
+    public @NotNull Node node(int index) {
+        if (index < 0 || index >= types.length)
+            throw new IndexOutOfBoundsException("Node %s out of bounds for %s nodes".formatted(index, types.length));
+        return new Node(index);
+    }
+
+    @Override
+    public String toString() {
+        return root().toString();
+    }
+
+    /**
+     * A view of a node of the flat tree, it keeps only the node's number.
+     */
+    public final class Node implements SyntaxNode {
+        private final int index;
+
+        private Node(int index) {
+            this.index = index;
+        }
+
+        public int index() {
+            return index;
+        }
+
+        @Override
+        public Object getValue() {
+            return valuePool[values[index]];
+        }
+
+        @Override
+        public @NotNull CodePosition getPosition() {
+            return new CodePosition(columns[index], lines[index], path);
+        }
+
+        @Override
+        public @NotNull Expressions getType() {
+            return EXPRESSIONS[types[index]];
+        }
+
+        @Override
+        public Node getFather() {
+            return fathers[index] == NONE ? null : new Node(fathers[index]);
+        }
+
+        @Override
+        public List<Node> children() {
+            List<Node> children = new ArrayList<>();
+            for (int c = firstChildren[index]; c != NONE; c = nextSiblings[c]) children.add(new Node(c));
+            return children;
+        }
+
+        @Override
+        public boolean is(Expressions @NotNull ... expressions) {
+            for (Expressions expression : expressions)
+                if (types[index] == expression.ordinal()) return true;
+            return false;
+        }
+
+        /**
+         * Does the same search that ASTNode's find, using the index: if this node does not have
+         * children of the type, each node of the type in its subtree is found if its father is the
+         * first node, in its way from this node, that has children of the type.
+         */
+        @Override
+        public List<Node> find(@NotNull Expressions type) {
+            List<Node> found = new ArrayList<>();
+            int typeBit = ASTIndex.bit(type);
+
+            if ((childTypes[index] & typeBit) != 0) {
+                for (int c = firstChildren[index]; c != NONE; c = nextSiblings[c])
+                    if (types[c] == type.ordinal()) found.add(new Node(c));
+                return found;
+            }
+
+            int first = Arrays.binarySearch(byType, typeStarts[type.ordinal()], typeStarts[type.ordinal() + 1], index + 1);
+            if (first < 0) first = -first - 1;
+
+            for (int i = first; i < typeStarts[type.ordinal() + 1] && byType[i] <= ends[index]; i++) {
+                int node = byType[i];
+
+                boolean reached = true;
+                for (int way = fathers[fathers[node]]; way != index && reached; way = fathers[way])
+                    reached = (childTypes[way] & typeBit) == 0;
+
+                if (reached) found.add(new Node(node));
+            }
+            return found;
+        }
+
+        @Override
+        public @NotNull Node left() throws ASTNode.EmptyASTException {
+            int left = firstChildren[index];
+            if (left == NONE)
+                throw new ASTNode.EmptyASTException(ASTNode.EmptyASTException.Case.LEFT);
+            return new Node(left);
+        }
+
+        @Override
+        public @NotNull Node right() throws ASTNode.EmptyASTException {
+            int left = firstChildren[index];
+            if (left == NONE || nextSiblings[left] == NONE)
+                throw new ASTNode.EmptyASTException(ASTNode.EmptyASTException.Case.RIGHT);
+            return new Node(nextSiblings[left]);
+        }
+
+        @Override
+        public @NotNull Node root() {
+            return new Node(0);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Node node && node.index == index && node.tree() == FlatAST.this;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(FlatAST.this) * 31 + index;
+        }
+
+        private FlatAST tree() {
+            return FlatAST.this;
+        }
+
+        /**
+         * Formats the node and its children like ASTNode does, the nodes are walked with a stack.
+         */
+        @Override
+        public String toString() {
+            StringBuilder result = new StringBuilder();
+            Deque<int[]> pending = new ArrayDeque<>();
+            pending.push(new int[]{index, 0});
+
+            while (!pending.isEmpty()) {
+                int[] entry = pending.pop();
+                int node = entry[0], depth = entry[1];
+
+                if (node != index) result.append("\n");
+                result.append("\t".repeat(depth));
+                result.append("- [c:%s; f:%s] %s".formatted(lines[node] + 1, columns[node] + 1, EXPRESSIONS[types[node]]));
+                result.append(":%s".formatted(valuePool[values[node]]));
+
+                int[] children = childrenOf(node);
+                for (int i = children.length - 1; i >= 0; i--) pending.push(new int[]{children[i], depth + 1});
+            }
+
+            return result.toString();
+        }
+    }
+
+    private int @NotNull [] childrenOf(int node) {
+        int count = 0;
+        for (int c = firstChildren[node]; c != NONE; c = nextSiblings[c]) count++;
+
+        int[] children = new int[count];
+        count = 0;
+        for (int c = firstChildren[node]; c != NONE; c = nextSiblings[c]) children[count++] = c;
+        return children;
+    }
+}
@@ -2,29 +2,48 @@ package compiler.parser;
 
 import compiler.lexical.Lexemes;
 import compiler.lexical.Token;
+import compiler.lexical.TokenStream;
 import org.jetbrains.annotations.Unmodifiable;
 import program.PizzaCodeSource;
 import language.util.CodePosition;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.Arrays;
-import java.util.List;
+import java.util.ArrayDeque;
+import java.util.Deque;
 
 /**
  * This is the Syntax Analyzer (Parser).
  * A parser is a software component that analyzes input data according to a defined syntax;
  * breaking it into tokens and building a structured representation such as an Abstract Syntax
  * Tree (AST) that captures the hierarchical relationships between elements in the input.
+ * The lexemes that can start each rule (its FIRST set) are precomputed as bits of a long, by the
+ * lexemes' ordinal, so each lookahead checks a bit instead of comparing a list of lexemes.
  */
 public class Parser {
-    private final List<Token> tokens;
+    private static final long DEFINITIONS = set(Lexemes.INGREDIENT, Lexemes.SPECIALTY);
+    private static final long SIZES = set(Lexemes.BIG, Lexemes.MEDIUM, Lexemes.PERSONAL);
+    private static final long PIZZA_PARTS = set(Lexemes.ADD, Lexemes.OF);
+    private static final long OPERATORS = set(Lexemes.PLUS, Lexemes.MINUS, Lexemes.MULTIPLY, Lexemes.DIVIDE);
+
+    private static final Lexemes[] LEXEMES = Lexemes.values();
+
+    private final TokenStream tokens;
+
+    /**
+     * Number of tokens read.
+     */
     private int nextTokenPosition;
+
+    /**
+     * The position of the current token, it's created only when a node or an error needs it.
+     */
     private CodePosition currentCodePosition;
+    private int currentCodePositionToken = -1;
 
     private final ASTNode programNode;
 
-    public Parser(@NotNull PizzaCodeSource program, List<Token> tokens) {
+    public Parser(@NotNull PizzaCodeSource program, TokenStream tokens) {
         this.tokens = tokens;
         this.nextTokenPosition = 0;
         this.currentCodePosition = new CodePosition(program.getPath());
@@ -35,21 +54,22 @@ public class Parser {
     }
 
     /**
-     * Starts parsing all statements.
+     * Starts parsing all statements, then the tree is indexed by the nodes' types.
      * @return the sourceCodePath node.
      */
     public @Unmodifiable ASTNode parse() throws ExpressionNotInterpretedException {
         do {
-            Token currentToken = nextToken();
-            programNode.add(switch (currentToken.type()) {
+            Lexemes currentLexeme = nextToken();
+            programNode.add(switch (currentLexeme) {
                 case MAKE -> parseMake();
                 case DEFINE -> parseDefine();
                 case INCLUDE -> parseInclude();
-                default -> throw new ExpressionNotInterpretedException(currentToken);
+                default -> throw new ExpressionNotInterpretedException(currentToken());
             });
 
-        } while (nextTokenPosition < tokens.size());
+        } while (tokens.peek() != null);
 
+        ASTIndex.build(programNode);
         return programNode;
     }
 
@@ -59,7 +79,7 @@ public class Parser {
      * @return include node.
      */
     private @NotNull ASTNode parseInclude() {
-        ASTNode includeNode = new ASTNode(Expressions.INCLUDE, currentCodePosition);
+        ASTNode includeNode = new ASTNode(Expressions.INCLUDE, currentCodePosition());
         includeNode.value = Lexemes.INCLUDE.value;
         includeNode.add(parseText());
 
@@ -74,11 +94,11 @@ public class Parser {
      * @return define node.
      */
     private @NotNull ASTNode parseDefine() {
-        ASTNode defineNode = new ASTNode(Expressions.DEFINE, currentCodePosition);
+        ASTNode defineNode = new ASTNode(Expressions.DEFINE, currentCodePosition());
 
-        Token expectedToken = expected(Lexemes.INGREDIENT, Lexemes.SPECIALTY);
+        Lexemes expectedLexeme = expected(DEFINITIONS);
 
-        switch (expectedToken.type()) {
+        switch (expectedLexeme) {
             case INGREDIENT -> defineNode.add(parseIngredient());
             case SPECIALTY -> defineNode.add(parseSpecialty());
         }
@@ -91,10 +111,10 @@ public class Parser {
      * @return ingredient node.
      */
     private @NotNull ASTNode parseIngredient() {
-        ASTNode ingredientNode = new ASTNode(Expressions.INGREDIENT_VAR, currentCodePosition);
+        ASTNode ingredientNode = new ASTNode(Expressions.INGREDIENT_VAR, currentCodePosition());
 
-        Token identifierToken = expected(Lexemes.LITERAL);
-        ASTNode identifierNode = new ASTNode(Expressions.LITERAL, identifierToken, currentCodePosition);
+        expected(Lexemes.LITERAL);
+        ASTNode identifierNode = new ASTNode(Expressions.LITERAL, currentToken(), currentCodePosition());
         ingredientNode.add(identifierNode);
 
         expected(Lexemes.OPEN_PARENTHESIS);
@@ -115,10 +135,10 @@ public class Parser {
      */
     private @NotNull ASTNode parseResize() {
         Token resizeToken = currentToken();
-        ASTNode resizeNode = new ASTNode(Expressions.RESIZE, resizeToken, currentCodePosition);
+        ASTNode resizeNode = new ASTNode(Expressions.RESIZE, resizeToken, currentCodePosition());
 
-        Token numberToken = expected(Lexemes.NUMBER);
-        ASTNode numberNode = new ASTNode(Expressions.NUMBER, numberToken, currentCodePosition);
+        expected(Lexemes.NUMBER);
+        ASTNode numberNode = new ASTNode(Expressions.NUMBER, currentToken(), currentCodePosition());
         resizeNode.add(numberNode);
 
         return resizeNode;
@@ -130,13 +150,13 @@ public class Parser {
      * @return specialty node.
      */
     private @NotNull ASTNode parseSpecialty() {
-        ASTNode specialtyNode = new ASTNode(Expressions.SPECIALTY_VAR, currentCodePosition);
+        ASTNode specialtyNode = new ASTNode(Expressions.SPECIALTY_VAR, currentCodePosition());
 
-        Token identifierToken = expected(Lexemes.LITERAL);
+        expected(Lexemes.LITERAL);
         ASTNode identifierNode = new ASTNode(
                 Expressions.LITERAL,
-                identifierToken,
-                currentCodePosition);
+                currentToken(),
+                currentCodePosition());
         specialtyNode.add(identifierNode);
 
         expected(Lexemes.OPEN_BRACE);
@@ -158,8 +178,8 @@ public class Parser {
      */
     private @NotNull ASTNode parseText() {
         expected(Lexemes.SINGLE_QUOTE);
-        Token urlToken = expected(Lexemes.TEXT);
-        ASTNode urlNode = new ASTNode(Expressions.PATH, urlToken, currentCodePosition);
+        expected(Lexemes.TEXT);
+        ASTNode urlNode = new ASTNode(Expressions.PATH, currentToken(), currentCodePosition());
         expected(Lexemes.SINGLE_QUOTE);
 
         if (are(Lexemes.SINGLE_QUOTE))
@@ -173,10 +193,10 @@ public class Parser {
      * @return make node.
      */
     private @NotNull ASTNode parseMake() {
-        ASTNode makeNode = new ASTNode(Expressions.MAKE, currentCodePosition);
+        ASTNode makeNode = new ASTNode(Expressions.MAKE, currentCodePosition());
 
-        Token sizeToken = expected(Lexemes.BIG, Lexemes.MEDIUM, Lexemes.PERSONAL);
-        ASTNode sizeNode = new ASTNode(Expressions.SIZE, sizeToken, currentCodePosition);
+        expected(SIZES);
+        ASTNode sizeNode = new ASTNode(Expressions.SIZE, currentToken(), currentCodePosition());
         makeNode.add(sizeNode);
 
         expected(Lexemes.PIZZA);
@@ -193,15 +213,15 @@ public class Parser {
      * @return pizza node.
      */
     private @NotNull ASTNode parsePizza() {
-        ASTNode pizzaNode = new ASTNode(Expressions.PIZZA, currentCodePosition);
+        ASTNode pizzaNode = new ASTNode(Expressions.PIZZA, currentCodePosition());
 
-        Token addOrOfToken = expected(Lexemes.ADD, Lexemes.OF);
-        switch (addOrOfToken.type()) {
+        Lexemes addOrOfLexeme = expected(PIZZA_PARTS);
+        switch (addOrOfLexeme) {
             case ADD -> pizzaNode.add(parseAdd());
             case OF -> pizzaNode.add(parseOf());
         }
 
-        if (addOrOfToken.is(Lexemes.OF))
+        if (addOrOfLexeme == Lexemes.OF)
             if (are(Lexemes.ADD)) {
                 nextToken();
                 pizzaNode.add(parseAdd());
@@ -218,10 +238,10 @@ public class Parser {
      * @return add node.
      */
     private @NotNull ASTNode parseAdd() {
-        ASTNode addNode = new ASTNode(Expressions.ADD, currentCodePosition);
+        ASTNode addNode = new ASTNode(Expressions.ADD, currentCodePosition());
 
         do {
-            if (are(Lexemes.AND)) nextTokenPosition++;
+            if (are(Lexemes.AND)) nextToken();
 
             addNode.add(parsePizzaIngredients());
         } while (are(Lexemes.AND));
@@ -235,14 +255,14 @@ public class Parser {
      * @return ingredient literal node.
      */
     private @NotNull ASTNode parsePizzaIngredients() {
-        Token literalToken = expected(Lexemes.LITERAL);
+        expected(Lexemes.LITERAL);
         ASTNode ingredientLiteralNode = new ASTNode(
                 Expressions.INGREDIENT_VAR,
-                literalToken,
-                currentCodePosition);
+                currentToken(),
+                currentCodePosition());
 
         expected(Lexemes.OPEN_PARENTHESIS);
-        ingredientLiteralNode.add(parsePlusminusOperation());
+        ingredientLiteralNode.add(parseOperation());
         expected(Lexemes.CLOSE_PARENTHESIS);
 
         return ingredientLiteralNode;
@@ -256,71 +276,77 @@ public class Parser {
     private @NotNull ASTNode parseOf() {
         ASTNode ofNode = new ASTNode(
                 Expressions.OF,
-                currentCodePosition);
+                currentCodePosition());
 
         do {
-            if (are(Lexemes.AND)) nextTokenPosition++;
-            Token addToken = expected(Lexemes.LITERAL);
+            if (are(Lexemes.AND)) nextToken();
+            expected(Lexemes.LITERAL);
             ofNode.add(new ASTNode(
                     Expressions.SPECIALTY_VAR,
-                    addToken,
-                    currentCodePosition));
+                    currentToken(),
+                    currentCodePosition()));
         } while (are(Lexemes.AND));
 
         return ofNode;
     }
 
     /**
-     * This method parse first multiplication and division operations.
-     * If there is not '*' or '/' lexeme after the number lexeme, then it returns that number
-     * node read, else it creates the multiplication or division node checking if the second
-     * lexeme could be a multiplication or division too.
+     * This method parse arithmetic operations, using the precedence climbing method without
+     * recursion: the numbers and operators read are kept in two stacks, before an operator is
+     * pushed, the operators on the stack with the same or a higher precedence take their two
+     * numbers and become a number; so multiplications and divisions are done before sums and
+     * minus, and operations with the same precedence are done from left to right.
+     * The stack depth of this method is the same for any expression's length.
      *
-     * @return number node or mul or div node.
+     * @return a number node or operation node.
      */
-    private @NotNull ASTNode parseMuldivOperation() {
-        Token numberToken = expected(Lexemes.NUMBER);
-        ASTNode numberNode = new ASTNode(
-                Expressions.NUMBER,
-                numberToken,
-                currentCodePosition);
+    private @NotNull ASTNode parseOperation() {
+        Deque<ASTNode> operands = new ArrayDeque<>();
+        Deque<ASTNode> operators = new ArrayDeque<>();
 
-        Token muldivToken = ask(Lexemes.MULTIPLY, Lexemes.DIVIDE);
-        if (muldivToken == null) return numberNode;
+        operands.push(parseNumber());
 
-        ASTNode muldivNode = new ASTNode(
-                Expressions.cast(muldivToken.type()),
-                currentCodePosition);
-        muldivNode.add(numberNode);
-        muldivNode.add(parseMuldivOperation());
+        Lexemes operatorLexeme;
+        while ((operatorLexeme = ask(OPERATORS)) != null) {
+            ASTNode operatorNode = new ASTNode(
+                    Expressions.cast(operatorLexeme),
+                    currentCodePosition());
 
-        return muldivNode;
+            while (!operators.isEmpty() && precedence(operators.peek()) >= precedence(operatorNode))
+                reduce(operands, operators);
+
+            operators.push(operatorNode);
+            operands.push(parseNumber());
+        }
+
+        while (!operators.isEmpty()) reduce(operands, operators);
+
+        return operands.pop();
+    }
+
+    private @NotNull ASTNode parseNumber() {
+        expected(Lexemes.NUMBER);
+        return new ASTNode(
+                Expressions.NUMBER,
+                currentToken(),
+                currentCodePosition());
     }
 
     /**
-     * This method parse sum and minus operations.
-     * To parse those operations, the method checks if there are mul or div operations before to
-     * start to analyze the tokens (This based on operations' hierarchy).
-     * If there is not '+' or '-' lexeme returns number node created by method
-     * parseMuldivOperation, else returns a sum or minus operation node that could contain
-     * mul or div operation.
-     * The operations returned by this method are already ordered.
-     *
-     * @return a number node or operation node.
+     * The operator on the top takes the two numbers on the top as its left and right children,
+     * and then it's a number.
      */
-    private @NotNull ASTNode parsePlusminusOperation() {
-        ASTNode numberNode = parseMuldivOperation();
-
-        Token plusminusToken = ask(Lexemes.PLUS, Lexemes.MINUS);
-        if (plusminusToken == null) return numberNode;
+    private static void reduce(@NotNull Deque<ASTNode> operands, @NotNull Deque<ASTNode> operators) {
+        ASTNode operatorNode = operators.pop();
+        ASTNode right = operands.pop();
 
-        ASTNode plusminusNode = new ASTNode(
-                Expressions.cast(plusminusToken.type()),
-                currentCodePosition);
-        plusminusNode.add(numberNode);
-        plusminusNode.add(parsePlusminusOperation());
+        operatorNode.add(operands.pop());
+        operatorNode.add(right);
+        operands.push(operatorNode);
+    }
 
-        return plusminusNode;
+    private static int precedence(@NotNull ASTNode operatorNode) {
+        return operatorNode.is(Expressions.MULTIPLY, Expressions.DIVIDE) ? 2 : 1;
     }
 
     /**
@@ -330,7 +356,7 @@ public class Parser {
      */
     private @NotNull ASTNode parseSave() {
         Token saveToken = currentToken();
-        ASTNode saveNode = new ASTNode(Expressions.SAVE_AS, saveToken, currentCodePosition);
+        ASTNode saveNode = new ASTNode(Expressions.SAVE_AS, saveToken, currentCodePosition());
 
         expected(Lexemes.AS);
         saveNode.add(parseText());
@@ -339,58 +365,131 @@ public class Parser {
     }
 
     /**
-     * Check if the next token is of any Lexeme given without going to the next token.
+     * @param lexemes the lexemes in the set.
+     * @return a set with the bits of the lexemes' ordinal.
+     */
+    private static long set(Lexemes @NotNull ... lexemes) {
+        long set = 0;
+        for (Lexemes lexeme : lexemes) set |= 1L << lexeme.ordinal();
+        return set;
+    }
+
+    /**
+     * @param set the bits of the lexemes.
+     * @return the lexemes in the set, ordered by their ordinal.
+     */
+    private static Lexemes @NotNull [] lexemes(long set) {
+        Lexemes[] lexemes = new Lexemes[Long.bitCount(set)];
+        for (int i = 0; set != 0; set &= set - 1)
+            lexemes[i++] = LEXEMES[Long.numberOfTrailingZeros(set)];
+        return lexemes;
+    }
+
+    /**
+     * Check if the next token is the Lexeme given without going to the next token.
      *
-     * @param expectedLexeme the lexemes to be compared.
+     * @param expectedLexeme the lexeme to be compared.
+     * @return true if the lexeme is equals to the next token, else false.
+     */
+    private boolean are(@NotNull Lexemes expectedLexeme) {
+        return tokens.peek() == expectedLexeme;
+    }
+
+    /**
+     * Check if the next token is of any Lexeme in the set given without going to the next token.
+     *
+     * @param expectedLexemes the bits of the lexemes to be compared.
      * @return true if at least one lexeme is equals to the next token, else false.
      */
-    private boolean are(Lexemes... expectedLexeme) {
-        if (nextTokenPosition >= tokens.size()) return false;
-        return Arrays.stream(expectedLexeme)
-                .map(l -> tokens.get(nextTokenPosition).is(l))
-                .reduce(false, Boolean::logicalOr);
+    private boolean are(long expectedLexemes) {
+        Lexemes nextLexeme = tokens.peek();
+
+        if (nextLexeme == null) return false;
+        return (expectedLexemes & (1L << nextLexeme.ordinal())) != 0;
     }
 
     /**
      * @return the current token read.
      */
     private Token currentToken() {
-        if (nextTokenPosition == 0) return tokens.get(0);
-        return tokens.get(nextTokenPosition - 1);
+        return new Token(tokens.type(), tokens.text(), currentCodePosition());
     }
 
-    private @NotNull Token nextToken() {
-        if (nextTokenPosition < tokens.size()) {
-            Token currentToken = tokens.get(nextTokenPosition++);
-            currentCodePosition = currentToken.position();
-            return currentToken;
+    /**
+     * @return the position of the current token read, the same object while the token does not change.
+     */
+    private @NotNull CodePosition currentCodePosition() {
+        if (nextTokenPosition > 0 && currentCodePositionToken != nextTokenPosition - 1) {
+            currentCodePositionToken = nextTokenPosition - 1;
+            currentCodePosition = tokens.position();
+        }
+        return currentCodePosition;
+    }
+
+    /**
+     * @return the lexeme of the token read.
+     */
+    private @NotNull Lexemes nextToken() {
+        if (tokens.peek() != null) {
+            nextTokenPosition++;
+            return tokens.next();
         } else throw new RuntimeException("The tokens ran out unexpectedly");
     }
 
+    /**
+     * Validates if the requested lexeme is next to the current lexeme, if true the method calls
+     * and returns nextToken() method, if not, the method throws an ExpectedLexemeException with
+     * information about error.
+     *
+     * @param expectedLexeme the lexeme requested.
+     * @return the lexeme of the next token.
+     * @throws RuntimeException if the method does not find the requested lexeme after the current
+     *                          token.
+     */
+    private @NotNull Lexemes expected(@NotNull Lexemes expectedLexeme) throws ExpectedLexemeException {
+        if (are(expectedLexeme))
+            return nextToken();
+        throw new ExpectedLexemeException(currentToken(), expectedLexeme);
+    }
+
     /**
      * Validates if one of the requested lexemes next to the current lexeme, if true the method
      * calls and returns nextToken() method, if there is not anyone, the method throws an
      * ExpectedLexemeException with information about error.
      *
-     * @param expectedLexeme an array with the lexemes requested.
-     * @return the next token with one of the lexemes requested.
+     * @param expectedLexemes the bits of the lexemes requested.
+     * @return the lexeme of the next token, one of the lexemes requested.
      * @throws RuntimeException if the method does not find any of the requested lexemes after the
      *                          current token.
      */
-    private @NotNull Token expected(Lexemes... expectedLexeme) throws ExpectedLexemeException {
-        if (are(expectedLexeme))
+    private @NotNull Lexemes expected(long expectedLexemes) throws ExpectedLexemeException {
+        if (are(expectedLexemes))
             return nextToken();
-        throw new ExpectedLexemeException(currentToken(), expectedLexeme);
+        throw new ExpectedLexemeException(currentToken(), lexemes(expectedLexemes));
+    }
+
+    /**
+     * Checks if the requested token is next to the current token, if true the method calls and
+     * returns the nextToken() method, otherwise, return null.
+     *
+     * @param askedLexeme the lexeme requested.
+     * @return the lexeme of the next token, or null if it is not the lexeme requested.
+     */
+    private @Nullable Lexemes ask(@NotNull Lexemes askedLexeme) {
+        if (are(askedLexeme))
+            return nextToken();
+        return null;
     }
 
     /**
      * Checks if the requested tokens are next to the current token, if true the method calls and
      * returns the nextToken() method, otherwise, return null.
      *
-     * @param askedLexemes an array with the lexemes requested.
-     * @return the next token with one of the lexemes requested, or null if there is not anyone.
+     * @param askedLexemes the bits of the lexemes requested.
+     * @return the lexeme of the next token, one of the lexemes requested, or null if there is not
+     * anyone.
      */
-    private @Nullable Token ask(Lexemes... askedLexemes) {
+    private @Nullable Lexemes ask(long askedLexemes) {
         if (are(askedLexemes))
             return nextToken();
         return null;
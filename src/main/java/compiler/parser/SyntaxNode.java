@@ -0,0 +1,67 @@
+package compiler.parser;
+
+import language.util.CodePosition;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Unmodifiable;
+
+import java.util.List;
+
+/**
+ * A node of a syntax tree, as it is read by the semantic analyzer and the language types.
+ * It's implemented by the ASTNode objects built by the parser, and by the views of a FlatAST.
+ */
+public interface SyntaxNode {
+    /**
+     * @return the value of the node, usually the lowercased text of its token.
+     */
+    Object getValue();
+
+    @NotNull CodePosition getPosition();
+
+    @NotNull Expressions getType();
+
+    /**
+     * @return the node that has this node as a child, or null if this node is the root.
+     */
+    SyntaxNode getFather();
+
+    /**
+     * @return all node's children.
+     */
+    @Unmodifiable List<? extends SyntaxNode> children();
+
+    /**
+     * Checks if this node is at least one of the types given.
+     *
+     * @param expressions the types to be compared.
+     * @return true if there is one coincidence, else false.
+     */
+    boolean is(Expressions... expressions);
+
+    /**
+     * Finds the children that have the Expression type given, if there is not anyone, then it
+     * finds them in each child's children, and so on.
+     *
+     * @param type the expression type to be found.
+     * @return a list with all nodes that has the type given, empty if there is not any with that
+     * characteristic.
+     */
+    List<? extends SyntaxNode> find(Expressions type);
+
+    /**
+     * @return the first child.
+     * @throws ASTNode.EmptyASTException if this node does not have roots.
+     */
+    @NotNull SyntaxNode left();
+
+    /**
+     * @return the second child.
+     * @throws ASTNode.EmptyASTException if this node does not have at least two roots.
+     */
+    @NotNull SyntaxNode right();
+
+    /**
+     * @return the top father in this node.
+     */
+    @NotNull SyntaxNode root();
+}
@@ -1,13 +1,13 @@
 package compiler.semantic;
 
 import language.types.Assignment;
-import compiler.parser.ASTNode;
+import compiler.parser.SyntaxNode;
 import org.jetbrains.annotations.NotNull;
 
 public class DuplicatedDefinitionException extends RuntimeException {
 
     public DuplicatedDefinitionException(
-            @NotNull ASTNode duplicated,
+            @NotNull SyntaxNode duplicated,
             @NotNull Assignment origin) {
         super(("Semantic Error: Declaration duplicated of %s located at %s, " +
                 "the first declaration is at %s")
@@ -1,13 +1,13 @@
 package compiler.semantic;
 
-import compiler.parser.ASTNode;
+import compiler.parser.SyntaxNode;
 import compiler.parser.Expressions;
 import language.types.Assignment;
 import language.util.CodePosition;
 import org.jetbrains.annotations.NotNull;
 
 public class IllegalDefinitionException extends RuntimeException {
-    public IllegalDefinitionException(@NotNull ASTNode invalidNode, Expressions expected) {
+    public IllegalDefinitionException(@NotNull SyntaxNode invalidNode, Expressions expected) {
         super("Semantic Error: Use of %s named %s is incorrect, located at %s. Expected %s instead"
                 .formatted(
                         invalidNode.getType(),
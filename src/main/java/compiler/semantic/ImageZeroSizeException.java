@@ -1,10 +1,10 @@
 package compiler.semantic;
 
-import compiler.parser.ASTNode;
+import compiler.parser.SyntaxNode;
 import org.jetbrains.annotations.NotNull;
 
 public class ImageZeroSizeException extends RuntimeException {
-    public ImageZeroSizeException(@NotNull ASTNode literalNode) {
+    public ImageZeroSizeException(@NotNull SyntaxNode literalNode) {
         super("Ingredient %s must have a dimension greater than zero located at %s"
                 .formatted(literalNode.getValue(), literalNode.getPosition()));
     }
@@ -0,0 +1,267 @@
+package compiler.semantic;
+
+import compiler.parser.SyntaxNode;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import program.PizzaCodeSource;
+
+import java.io.*;
+import java.net.URL;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Process-wide cache of the compiled included sources.
+ * An included source is compiled once while it does not change, then each source that includes
+ * it shares the same result: its instructions and its symbol table, that is never modified by
+ * the including sources since they only layer it under their own tables.
+ * The sources are found as the compiler does: first as a compiler resource, keyed by its URL, since
+ * the resources don't change while the compiler runs; otherwise, as a file, keyed by its canonical
+ * path. A file is compiled again when its last modification time or its size changes, and its new
+ * result replaces the old one, so there is only one result kept for each source.
+ * If two sources include the same source at the same time, it's compiled by the first one and the
+ * other waits for its result; a source that fails is not kept, so its error is found again.
+ * The includes of a source can be submitted as soon as it's parsed, so independent sources are
+ * compiled at the same time, each one in its own virtual thread when the runtime has them.
+ * A source that waits for an include is recorded in a graph shared by all the threads, so a cycle
+ * is found even between sources compiled by different threads, instead of waiting forever.
+ */
+public final class IncludeCache {
+    private static final ConcurrentHashMap<Key, Module> modules = new ConcurrentHashMap<>();
+
+    /**
+     * The includes being compiled or waited for, from the location of each includer to the
+     * locations it waits for; a location is repeated if it's waited for more than once.
+     */
+    private static final Map<String, List<String>> waiting = new HashMap<>();
+
+    /**
+     * The includes mostly wait for I/O or for their own includes, so a thread is used for each one:
+     * a virtual thread on Java 21 and later, a daemon thread otherwise.
+     */
+    private static final ExecutorService executor = newExecutor();
+
+    private IncludeCache() {
+    }
+
+    private static @NotNull ExecutorService newExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, "pizza-include");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private record Key(String location, boolean flatAST) {
+    }
+
+    /**
+     * The compilation of a source, with the last modification time and size of the file it was
+     * read from; both are zero for the resources.
+     */
+    private record Module(long stamp, long size, FutureTask<SemanticAnalyzer.Intermediate> task) {
+        boolean isFrom(long stamp, long size) {
+            return this.stamp == stamp && this.size == size;
+        }
+    }
+
+    /**
+     * Starts the compilation of an included source in its own thread.
+     * Its errors, even if the source is not found, are thrown by {@link #await(Future)}, so they
+     * are reported in the order of the includes.
+     *
+     * @param pathNode the node with the name of the included source, used by the errors.
+     * @param includer the source that includes it.
+     * @param path     the path of the included source.
+     * @return the result of the included source's compilation, when it's done.
+     */
+    public static @NotNull Future<SemanticAnalyzer.Intermediate> submit(@NotNull SyntaxNode pathNode,
+                                                                        @NotNull PizzaCodeSource includer,
+                                                                        @NotNull Path path) {
+        return executor.submit(() -> compile(pathNode, includer, path));
+    }
+
+    /**
+     * Waits for a submitted include.
+     *
+     * @param include the include returned by {@link #submit(SyntaxNode, PizzaCodeSource, Path)}.
+     * @return the result of the included source's compilation.
+     * @throws FileNotFoundException if the source is not a compiler resource nor a file.
+     */
+    public static @NotNull SemanticAnalyzer.Intermediate await(@NotNull Future<SemanticAnalyzer.Intermediate> include)
+            throws FileNotFoundException {
+        try {
+            return include.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof FileNotFoundException cause) throw cause;
+            throw rethrow(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("The compilation of an include was interrupted", e);
+        }
+    }
+
+    /**
+     * Compiles the included source in this thread, or returns its result if it was already compiled.
+     *
+     * @param pathNode the node with the name of the included source, used by the errors.
+     * @param includer the source that includes it.
+     * @param path     the path of the included source.
+     * @return the result of the included source's compilation.
+     * @throws FileNotFoundException if the source is not a compiler resource nor a file.
+     */
+    public static @NotNull SemanticAnalyzer.Intermediate compile(@NotNull SyntaxNode pathNode,
+                                                                @NotNull PizzaCodeSource includer,
+                                                                @NotNull Path path) throws FileNotFoundException {
+        URL resource = PizzaCodeSource.class.getClassLoader().getResource(path.toString());
+        Key key;
+        long stamp = 0, size = 0;
+        List<String> includers;
+        File file = path.toFile();
+
+        try {
+            if (resource != null) {
+                key = new Key(resource.toString(), includer.isFlatAST());
+            } else if (file.exists()) {
+                key = new Key(file.getCanonicalPath(), includer.isFlatAST());
+                stamp = file.lastModified();
+                size = file.length();
+            } else throw new FileNotFoundException("No se encontró el archivo " + path);
+
+            includers = includeChain(includer);
+        } catch (FileNotFoundException e) {
+            throw e;
+        } catch (IOException e) {
+            throw InvalidPathException.notOpen(pathNode);
+        }
+
+        List<String> chain = new ArrayList<>(includers);
+        chain.add(key.location());
+        if (includers.contains(key.location())) throw InvalidPathException.cycle(pathNode, chain);
+
+        FutureTask<SemanticAnalyzer.Intermediate> task = new FutureTask<>(() -> {
+            BufferedReader reader = resource != null
+                    ? new BufferedReader(new InputStreamReader(resource.openStream()))
+                    : new BufferedReader(new FileReader(file));
+
+            PizzaCodeSource source = new PizzaCodeSource(reader, path, false);
+            source.setFlatAST(key.flatAST());
+            source.setIncludeChain(List.copyOf(chain));
+            return source.compile();
+        });
+
+        String from = includers.isEmpty() ? null : includers.get(includers.size() - 1);
+        if (from != null) startWaiting(pathNode, includers, from, key.location());
+
+        try {
+            //a file that changed replaces its old result
+            long fileStamp = stamp, fileSize = size;
+            Module fresh = new Module(stamp, size, task);
+            Module module = modules.compute(key, (k, old) -> old != null && old.isFrom(fileStamp, fileSize) ? old : fresh);
+            if (module == fresh) task.run();
+
+            try {
+                return module.task().get();
+            } catch (ExecutionException e) {
+                modules.remove(key, module);
+                throw rethrow(e);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("The compilation of %s was interrupted".formatted(path), e);
+        } finally {
+            if (from != null) stopWaiting(from, key.location());
+        }
+    }
+
+    /**
+     * Records that a source waits for an include, unless the include already waits, maybe through
+     * other includes, for that source.
+     *
+     * @throws InvalidPathException if the include would close a cycle.
+     */
+    private static void startWaiting(@NotNull SyntaxNode pathNode, @NotNull List<String> includers,
+                                     @NotNull String from, @NotNull String to) {
+        synchronized (waiting) {
+            List<String> cycle = findWaiting(to, from);
+            if (cycle != null) {
+                List<String> chain = new ArrayList<>(includers);
+                chain.addAll(cycle);
+                throw InvalidPathException.cycle(pathNode, chain);
+            }
+            waiting.computeIfAbsent(from, k -> new ArrayList<>()).add(to);
+        }
+    }
+
+    private static void stopWaiting(@NotNull String from, @NotNull String to) {
+        synchronized (waiting) {
+            List<String> includes = waiting.get(from);
+            includes.remove(to);
+            if (includes.isEmpty()) waiting.remove(from);
+        }
+    }
+
+    /**
+     * Searches the includes waited for from a location, without recursion.
+     *
+     * @return the locations from the start to the target, both included, or null if the target is
+     * not waited for from the start.
+     */
+    private static @Nullable List<String> findWaiting(@NotNull String start, @NotNull String target) {
+        Map<String, String> previous = new HashMap<>();
+        Deque<String> pending = new ArrayDeque<>();
+        previous.put(start, null);
+        pending.push(start);
+
+        while (!pending.isEmpty()) {
+            String location = pending.pop();
+            if (location.equals(target)) {
+                LinkedList<String> path = new LinkedList<>();
+                for (String l = location; l != null; l = previous.get(l)) path.addFirst(l);
+                return path;
+            }
+
+            for (String next : waiting.getOrDefault(location, List.of())) {
+                if (previous.containsKey(next)) continue;
+                previous.put(next, location);
+                pending.push(next);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The includes of a source that was not included starts at its own file, if it has one.
+     */
+    private static @NotNull List<String> includeChain(@NotNull PizzaCodeSource source) throws IOException {
+        if (!source.getIncludeChain().isEmpty()) return source.getIncludeChain();
+
+        File file = source.getPath().toFile();
+        return file.exists() ? List.of(file.getCanonicalPath()) : List.of();
+    }
+
+    private static @NotNull RuntimeException rethrow(@NotNull ExecutionException e) {
+        if (e.getCause() instanceof RuntimeException cause) return cause;
+        if (e.getCause() instanceof Error cause) throw cause;
+        return new IllegalStateException(e.getCause());
+    }
+
+    /**
+     * Removes all the compiled sources, so they are compiled again the next time they are included.
+     */
+    public static void clear() {
+        modules.clear();
+    }
+
+    /**
+     * @return the number of compiled sources kept.
+     */
+    public static int size() {
+        return modules.size();
+    }
+}
@@ -1,10 +1,31 @@
 package compiler.semantic;
 
 import compiler.parser.Expressions;
+import compiler.parser.SyntaxNode;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
 
 public class InvalidArithmeticOperationException extends RuntimeException {
     public InvalidArithmeticOperationException(Expressions symbol) {
         super("Couldn't match arithmetic symbol %s, it's not available"
                 .formatted(symbol));
     }
+
+    public InvalidArithmeticOperationException(String message) {
+        super(message);
+    }
+
+    @Contract("_ -> new")
+    public static @NotNull InvalidArithmeticOperationException divisionByZero(@NotNull SyntaxNode divideNode) {
+        return new InvalidArithmeticOperationException(
+                "Semantic Error: Division by zero located at %s"
+                        .formatted(divideNode.getPosition()));
+    }
+
+    @Contract("_ -> new")
+    public static @NotNull InvalidArithmeticOperationException overflow(@NotNull SyntaxNode node) {
+        return new InvalidArithmeticOperationException(
+                "Semantic Error: The result of %s located at %s is out of the numbers' range"
+                        .formatted(node.getType(), node.getPosition()));
+    }
 }
@@ -1,9 +1,11 @@
 package compiler.semantic;
 
-import compiler.parser.ASTNode;
+import compiler.parser.SyntaxNode;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.List;
+
 public class InvalidPathException extends RuntimeException {
 
     public InvalidPathException(String message) {
@@ -11,7 +13,7 @@ public class InvalidPathException extends RuntimeException {
     }
 
     @Contract("_ -> new")
-    public static @NotNull InvalidPathException invalid(@NotNull ASTNode pathNode) {
+    public static @NotNull InvalidPathException invalid(@NotNull SyntaxNode pathNode) {
         return new InvalidPathException(
                 "The direction PATH, URL or URI provided '%s' by %s located at %s is incorrect or not valid"
                         .formatted(
@@ -21,7 +23,7 @@ public class InvalidPathException extends RuntimeException {
     }
 
     @Contract("_ -> new")
-    public static @NotNull InvalidPathException notOpen(@NotNull ASTNode pathNode) {
+    public static @NotNull InvalidPathException notOpen(@NotNull SyntaxNode pathNode) {
         return new InvalidPathException(
                 "The direction PATH, URL or URI provided '%s' by %s located at %s is not accessible"
                         .formatted(
@@ -30,7 +32,7 @@ public class InvalidPathException extends RuntimeException {
                                 pathNode.getPosition()));
     }
 
-    public static @NotNull InvalidPathException recursive(@NotNull ASTNode pathNode) {
+    public static @NotNull InvalidPathException recursive(@NotNull SyntaxNode pathNode) {
         return new InvalidPathException(
                 "The direction PATH, URL or URI provided '%s' by %s located at %s is the same that its caller"
                         .formatted(
@@ -38,6 +40,15 @@ public class InvalidPathException extends RuntimeException {
                                 pathNode.getFather().getValue(),
                                 pathNode.getPosition()));
     }
-}
-
 
+    @Contract("_, _ -> new")
+    public static @NotNull InvalidPathException cycle(@NotNull SyntaxNode pathNode, @NotNull List<String> includers) {
+        return new InvalidPathException(
+                "The direction PATH, URL or URI provided '%s' by %s located at %s is already included by its callers: %s"
+                        .formatted(
+                                pathNode.getValue(),
+                                pathNode.getFather().getValue(),
+                                pathNode.getPosition(),
+                                String.join(" -> ", includers)));
+    }
+}
@@ -1,6 +1,8 @@
 package compiler.semantic;
 
 import compiler.parser.ASTNode;
+import compiler.parser.ConstantFolder;
+import compiler.parser.SyntaxNode;
 import compiler.parser.Expressions;
 import program.PizzaCodeSource;
 import language.*;
@@ -17,6 +19,7 @@ import java.net.URISyntaxException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 /**
@@ -31,19 +34,26 @@ public class SemanticAnalyzer {
     private final SymbolTable symbolTable = new SymbolTable();
     private final LinkedHashSet<Instruction> instructions = new LinkedHashSet<>();
 
-    private final ASTNode programNode;
+    private final SyntaxNode programNode;
 
-    public SemanticAnalyzer(@NotNull ASTNode programNode) {
+    /**
+     * The includes of the program, submitted before the analysis so they are compiled at the same
+     * time, their results are merged in the order of the code.
+     */
+    private final Map<SyntaxNode, Future<Intermediate>> includes = new HashMap<>();
+
+    public SemanticAnalyzer(@NotNull SyntaxNode programNode) {
         this.programNode = programNode;
     }
 
     public Intermediate analyze() {
+        submitIncludes();
         analyzeProgram(programNode);
 
         return new Intermediate(programNode, instructions, symbolTable);
     }
 
-    private void analyzeProgram(@NotNull ASTNode node) {
+    private void analyzeProgram(@NotNull SyntaxNode node) {
         node.children().forEach(n -> {
             switch (n.getType()) {
                 case DEFINE -> analyzeDefine(n);
@@ -54,46 +64,62 @@ public class SemanticAnalyzer {
         });
     }
 
-    private void analyzeInclude(@NotNull ASTNode includeNode) {
+    private void submitIncludes() {
         PizzaCodeSource sourceProgram = (PizzaCodeSource) programNode.getValue();
-        Path path = Paths.get(includeNode.left().getValue().toString() + ".pf");
+
+        for (SyntaxNode includeNode : programNode.find(Expressions.INCLUDE)) {
+            Path path = includePath(includeNode);
+
+            if (!path.getFileName().equals(sourceProgram.getPath().getFileName()))
+                includes.put(includeNode, IncludeCache.submit(includeNode.left(), sourceProgram, path));
+        }
+    }
+
+    private static @NotNull Path includePath(@NotNull SyntaxNode includeNode) {
+        return Paths.get(includeNode.left().getValue().toString() + ".pf");
+    }
+
+    private void analyzeInclude(@NotNull SyntaxNode includeNode) {
+        PizzaCodeSource sourceProgram = (PizzaCodeSource) programNode.getValue();
+        Path path = includePath(includeNode);
 
         if (path.getFileName().equals(sourceProgram.getPath().getFileName()))
             throw InvalidPathException.recursive(includeNode.left());
 
         try {
-            PizzaCodeSource includeProgram = new PizzaCodeSource(sourceProgram.getBuffer(path), path, false);
-
-            Intermediate include = includeProgram.compile();
-            //add each instruction and symbol
-            instructions.addAll(include.instructions);
-            symbolTable.addAll(include.symbols);
+            Future<Intermediate> submitted = includes.get(includeNode);
+            Intermediate include = submitted != null
+                    ? IncludeCache.await(submitted)
+                    : IncludeCache.compile(includeNode.left(), sourceProgram, path);
+            //add a copy of each instruction, and share its symbols
+            include.instructions.forEach(i -> instructions.add(i instanceof Make make ? make.copy() : i));
+            symbolTable.include(include.symbols);
         } catch (FileNotFoundException e) {
             throw InvalidPathException.invalid(includeNode.left());
         }
     }
 
-    private void analyzeDefine(@NotNull ASTNode defineNode) {
+    private void analyzeDefine(@NotNull SyntaxNode defineNode) {
         switch (defineNode.left().getType()) {
             case INGREDIENT_VAR -> analyzeIngredientDefinition(defineNode.left());
             case SPECIALTY_VAR -> analyzeSpecialtyDefinition(defineNode.left());
         }
     }
 
-    private void analyzeIngredientDefinition(@NotNull ASTNode ingredientNode) {
-        ASTNode literalNode = ingredientNode.left();
+    private void analyzeIngredientDefinition(@NotNull SyntaxNode ingredientNode) {
+        SyntaxNode literalNode = ingredientNode.left();
         Ingredient ingredient = new Ingredient(ingredientNode);
 
         if (ingredient.getSize().getWidth() == 0 || ingredient.getSize().getHeight() == 0)
             throw new ImageZeroSizeException(literalNode);
         if (symbolTable.add(ingredient)) return;
 
-        Assignment declaredIngredient = symbolTable.get(literalNode.getValue());
+        Assignment declaredIngredient = symbolTable.getIngredient(literalNode.getValue());
         throw new DuplicatedDefinitionException(literalNode, declaredIngredient);
     }
 
-    private void analyzeSpecialtyDefinition(@NotNull ASTNode specialtyNode) {
-        ASTNode literalNode = specialtyNode.left();
+    private void analyzeSpecialtyDefinition(@NotNull SyntaxNode specialtyNode) {
+        SyntaxNode literalNode = specialtyNode.left();
 
         symbolTable.add(new Specialty(
             literalNode,
@@ -103,8 +129,8 @@ public class SemanticAnalyzer {
                     throw new UndefinedVarException(n);
                 })
                 .map(n -> {
-                    Assignment var = symbolTable.get(n.getValue());
-                    if (!(var instanceof Ingredient ingredient))
+                    Ingredient ingredient = symbolTable.getIngredient(n.getValue());
+                    if (ingredient == null)
                         throw new IllegalDefinitionException(n, Expressions.INGREDIENT_VAR);
 
                     int quantity = doOperation(n.left());
@@ -113,7 +139,7 @@ public class SemanticAnalyzer {
                 .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (k, v) -> k, LinkedHashMap::new))));
     }
 
-    private void addMake(@NotNull ASTNode makeNode) {
+    private void addMake(@NotNull SyntaxNode makeNode) {
         Make make = new Make(makeNode);
         instructions.add(make);
 
@@ -122,7 +148,7 @@ public class SemanticAnalyzer {
         });
     }
 
-    private @NotNull Pizza analyzePizza(@NotNull ASTNode sizeNode) {
+    private @NotNull Pizza analyzePizza(@NotNull SyntaxNode sizeNode) {
         Pizza pizza = new Pizza(sizeNode);
 
         sizeNode.left().children().forEach(n -> {
@@ -135,23 +161,22 @@ public class SemanticAnalyzer {
         return pizza;
     }
 
-    private LinkedHashSet<Specialty> validSpecialties(@NotNull ASTNode ofNode) {
+    private LinkedHashSet<Specialty> validSpecialties(@NotNull SyntaxNode ofNode) {
         return ofNode.children().stream()
             .map(n -> {
+                Specialty specialty = symbolTable.getSpecialty(n.getValue());
+                if (specialty != null)
+                    return specialty;
+
                 if (!symbolTable.isDeclared(n))
                     throw new UndefinedVarException(n);
 
-                Assignment assignment = symbolTable.get(n);
-
-                if (assignment instanceof Specialty specialty)
-                    return specialty;
-
                 throw new IllegalDefinitionException(n, Expressions.INGREDIENT_VAR);
             })
             .collect(Collectors.toCollection(LinkedHashSet::new));
     }
 
-    private LinkedHashMap<Ingredient, Integer> validIngredients(@NotNull ASTNode addNode) {
+    private LinkedHashMap<Ingredient, Integer> validIngredients(@NotNull SyntaxNode addNode) {
         return addNode.children().stream()
             .map(n -> {
                 if (!symbolTable.isDeclared(n))
@@ -180,14 +205,42 @@ public class SemanticAnalyzer {
             .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (e1, e2) -> e1, LinkedHashMap::new));
     }
 
-    private int doOperation(@NotNull ASTNode operationNode) {
-        return switch (operationNode.getType()) {
-            case PLUS -> doOperation(operationNode.left()) + doOperation(operationNode.right());
-            case MINUS -> doOperation(operationNode.left()) - doOperation(operationNode.right());
-            case MULTIPLY -> doOperation(operationNode.left()) * doOperation(operationNode.right());
-            case DIVIDE -> doOperation(operationNode.left()) / doOperation(operationNode.right());
-            case NUMBER -> Integer.parseInt(operationNode.getValue().toString());
-            default -> throw new InvalidArithmeticOperationException(operationNode.getType());
+    /**
+     * Reads a quantity, its operations were already replaced by their results by the
+     * {@link ConstantFolder}, so it's always a number.
+     */
+    private int doOperation(@NotNull SyntaxNode quantityNode) {
+        if (!quantityNode.is(Expressions.NUMBER))
+            throw new InvalidArithmeticOperationException(quantityNode.getType());
+        try {
+            return ConstantFolder.number(quantityNode);
+        } catch (ConstantFolder.FoldException e) {
+            throw arithmeticError(e);
+        }
+    }
+
+    /**
+     * Replaces the operations of the tree by their results, see {@link ConstantFolder}; it must be
+     * done before the analysis, while the tree is still an ASTNode tree.
+     *
+     * @param tree the tree made by the parser.
+     * @return the number of operations replaced.
+     * @throws InvalidArithmeticOperationException if there is a division by zero or a number out of
+     *                                             the int range.
+     */
+    public static int fold(@NotNull ASTNode tree) {
+        try {
+            return ConstantFolder.fold(tree);
+        } catch (ConstantFolder.FoldException e) {
+            throw arithmeticError(e);
+        }
+    }
+
+    private static @NotNull InvalidArithmeticOperationException arithmeticError(@NotNull ConstantFolder.FoldException e) {
+        return switch (e.getReason()) {
+            case OVERFLOW -> InvalidArithmeticOperationException.overflow(e.getNode());
+            case DIVISION_BY_ZERO -> InvalidArithmeticOperationException.divisionByZero(e.getNode());
+            case NOT_OPERATOR -> new InvalidArithmeticOperationException(e.getNode().getType());
         };
     }
 
@@ -198,13 +251,15 @@ public class SemanticAnalyzer {
 
     /**
      * Contains the output of semantic analyzer process.
+     * The output of an included source is shared by all the sources that include it, so it must
+     * not be modified; the sources that include it add copies of its instructions.
      */
     public static class Intermediate {
-        public PizzaCodeSource program;
-        public @Unmodifiable LinkedHashSet<Instruction> instructions;
-        public SymbolTable symbols;
+        public final PizzaCodeSource program;
+        public final @Unmodifiable LinkedHashSet<Instruction> instructions;
+        public final SymbolTable symbols;
 
-        public Intermediate(@NotNull ASTNode programNode,
+        public Intermediate(@NotNull SyntaxNode programNode,
                             @Unmodifiable LinkedHashSet<Instruction> instructions,
                             SymbolTable symbols) {
             this.program = (PizzaCodeSource) programNode.getValue();
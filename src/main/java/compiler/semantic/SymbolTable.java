@@ -1,33 +1,107 @@
 package compiler.semantic;
 
+import compiler.parser.SyntaxNode;
 import language.types.Assignment;
-import compiler.parser.ASTNode;
+import language.types.Ingredient;
+import language.types.Specialty;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
- * Hash set with all assignment objects as code symbols for it.
- * Contains variables and instructions to be executed.
+ * Table with all assignment objects as code symbols for it, keyed by their names.
+ * Ingredients and specialties have their own namespace, so each lookup is a hash lookup in the
+ * namespace asked.
+ * The symbols of the included sources are not copied; their tables are layered under this one
+ * and searched in the order they were included, after this table's own symbols.
  */
-public class SymbolTable extends HashSet<Assignment> {
+public class SymbolTable {
+    private final Map<Object, Ingredient> ingredients = new HashMap<>();
+    private final Map<Object, Specialty> specialties = new HashMap<>();
+    private final List<SymbolTable> included = new ArrayList<>();
 
-    public Assignment get(Object value) {
-        return stream()
-                .reduce(null, (a, s) -> s.getName().equals(value) ? s : a);
+    /**
+     * Shares the symbols of an included source with this table.
+     * @param symbols the table of the included source.
+     */
+    public void include(@NotNull SymbolTable symbols) {
+        included.add(symbols);
     }
 
-    protected Assignment get(@NotNull ASTNode node) {
+    /**
+     * @param ingredient the ingredient to be declared.
+     * @return false if there is an ingredient with the same name, in this table or an included one.
+     */
+    public boolean add(@NotNull Ingredient ingredient) {
+        if (getIngredient(ingredient.getName()) != null) return false;
+        ingredients.put(ingredient.getName(), ingredient);
+        return true;
+    }
+
+    /**
+     * @param specialty the specialty to be declared.
+     * @return false if there is a specialty with the same name, in this table or an included one.
+     */
+    public boolean add(@NotNull Specialty specialty) {
+        if (getSpecialty(specialty.getName()) != null) return false;
+        specialties.put(specialty.getName(), specialty);
+        return true;
+    }
+
+    public @Nullable Ingredient getIngredient(Object name) {
+        Ingredient ingredient = ingredients.get(name);
+
+        for (int i = 0; ingredient == null && i < included.size(); i++)
+            ingredient = included.get(i).getIngredient(name);
+        return ingredient;
+    }
+
+    public @Nullable Specialty getSpecialty(Object name) {
+        Specialty specialty = specialties.get(name);
+
+        for (int i = 0; specialty == null && i < included.size(); i++)
+            specialty = included.get(i).getSpecialty(name);
+        return specialty;
+    }
+
+    /**
+     * @param name the name of the symbol.
+     * @return the ingredient with that name, or the specialty if there is not an ingredient, or null.
+     */
+    public @Nullable Assignment get(Object name) {
+        Ingredient ingredient = getIngredient(name);
+        return ingredient != null ? ingredient : getSpecialty(name);
+    }
+
+    protected @Nullable Assignment get(@NotNull SyntaxNode node) {
         return get(node.getValue());
     }
 
-    public boolean isDeclared(Object value) {
-        return stream()
-                .map(v -> v.getName().equals(value))
-                .reduce(false, Boolean::logicalOr);
+    public boolean isDeclared(Object name) {
+        return get(name) != null;
     }
 
-    public boolean isDeclared(@NotNull ASTNode node) {
+    public boolean isDeclared(@NotNull SyntaxNode node) {
         return isDeclared(node.getValue());
     }
+
+    /**
+     * @return the ingredients declared in this table, without the included ones.
+     */
+    public @NotNull Collection<Ingredient> ingredients() {
+        return Collections.unmodifiableCollection(ingredients.values());
+    }
+
+    /**
+     * @return the specialties declared in this table, without the included ones.
+     */
+    public @NotNull Collection<Specialty> specialties() {
+        return Collections.unmodifiableCollection(specialties.values());
+    }
 }
@@ -1,10 +1,10 @@
 package compiler.semantic;
 
-import compiler.parser.ASTNode;
+import compiler.parser.SyntaxNode;
 import org.jetbrains.annotations.NotNull;
 
 public class UndefinedVarException extends RuntimeException {
-    public UndefinedVarException(@NotNull ASTNode nodeUndefinedVar) {
+    public UndefinedVarException(@NotNull SyntaxNode nodeUndefinedVar) {
         super("Semantic Error: %s named %s is not defined before to its use, call it at %s"
                 .formatted(
                         nodeUndefinedVar.getType(),
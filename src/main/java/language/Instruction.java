@@ -1,6 +1,6 @@
 package language;
 
-import compiler.parser.ASTNode;
+import compiler.parser.SyntaxNode;
 import language.util.CodePosition;
 import lombok.Getter;
 import org.jetbrains.annotations.NotNull;
@@ -16,11 +16,20 @@ public abstract class Instruction {
      */
     protected final Object name;
 
-    public Instruction(@NotNull ASTNode instructionNode) {
+    public Instruction(@NotNull SyntaxNode instructionNode) {
         this.declaredAt = instructionNode.getPosition();
         this.name = instructionNode.getValue();
     }
 
+    /**
+     * Copies the declaration of another instruction.
+     * @param instruction the declared instruction.
+     */
+    protected Instruction(@NotNull Instruction instruction) {
+        this.declaredAt = instruction.declaredAt;
+        this.name = instruction.name;
+    }
+
     @Override
     public String toString() {
         return "Instruction declared at %s".formatted(declaredAt);
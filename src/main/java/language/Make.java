@@ -1,7 +1,8 @@
 package language;
 
-import compiler.parser.ASTNode;
+import compiler.parser.SyntaxNode;
 import language.types.Assignment;
+import language.types.Pizza;
 import lombok.Getter;
 import lombok.Setter;
 import org.jetbrains.annotations.NotNull;
@@ -11,10 +12,25 @@ import org.jetbrains.annotations.NotNull;
 public class Make extends Instruction {
     private Assignment instruction;
 
-    public Make(@NotNull ASTNode node) {
+    public Make(@NotNull SyntaxNode node) {
         super(node);
     }
 
+    private Make(@NotNull Make make) {
+        super(make);
+        this.instruction = make.instruction instanceof Pizza pizza ? pizza.copy() : make.instruction;
+    }
+
+    /**
+     * Must be used to add the make of an included source.
+     * The result of an included source is shared by every source that includes it, so it's never
+     * modified; each source draws its own copy of the pizza.
+     * @return a copy of this make with a copy of its pizza.
+     */
+    public @NotNull Make copy() {
+        return new Make(this);
+    }
+
     @Override
     public String toString() {
         return super.toString() + " " + instruction;
@@ -1,6 +1,6 @@
 package language.types;
 
-import compiler.parser.ASTNode;
+import compiler.parser.SyntaxNode;
 import language.util.CodePosition;
 import language.util.Circle;
 import language.util.Segment;
@@ -42,11 +42,21 @@ public abstract class Assignment extends Graphics2D {
      * otherwise, it will produce a NullPointException when tries to paint this object.
      * @param node base object to instance this assignment.
      */
-    public Assignment(@NotNull ASTNode node) {
+    public Assignment(@NotNull SyntaxNode node) {
         this.declaredAt = node.getPosition();
         this.name = node.getValue();
     }
 
+    /**
+     * Copies the declaration of another assignment, without its canvas or graphics object.
+     * @param assignment the declared assignment.
+     */
+    protected Assignment(@NotNull Assignment assignment) {
+        this.declaredAt = assignment.declaredAt;
+        this.name = assignment.name;
+        this.imageName = assignment.imageName;
+    }
+
     /**
      * If the assignment is implicit.
      * Must be provided its graphics object later; otherwise, it will produce a NullPointException
@@ -58,27 +68,11 @@ public abstract class Assignment extends Graphics2D {
     }
 
     public void fillCircle(@NotNull Circle circle) {
-        graphics.fillOval(
-                circle.center.x - circle.radius,
-                circle.center.y - circle.radius,
-                circle.diameter,
-                circle.diameter);
+        circle.fill(this);
     }
 
     public void drawSegment(@NotNull Segment segment) {
-        graphics.drawLine(segment.a.x, segment.a.y, segment.b.x, segment.b.y);
-    }
-
-    public void drawIngredient(@NotNull Ingredient ing, @NotNull Point luCorner) {
-        Point center = new Point(
-                (int) (luCorner.x - ing.getSize().getWidth() / 2),
-                (int) (luCorner.y - ing.getSize().getHeight() / 2));
-        drawImage(ing.getCanvas(),
-                center.x,
-                center.y,
-                ing.getSize().width,
-                ing.getSize().height,
-                null);
+        segment.draw(this);
     }
 
     @Override
@@ -1,35 +1,66 @@
 package language.types;
 
-import compiler.parser.ASTNode;
+import compiler.parser.SyntaxNode;
 import compiler.parser.Expressions;
 import compiler.semantic.ImageNotSquaredException;
 import program.PizzaCodeSource;
 import compiler.semantic.InvalidPathException;
+import language.util.SpriteCache;
 import lombok.Getter;
 import org.jetbrains.annotations.NotNull;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.*;
-import java.net.*;
+import java.net.MalformedURLException;
+import java.net.URL;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Iterator;
 
+/**
+ * An ingredient keeps where its image is and the size it's drawn with, its image is only decoded
+ * when it's drawn, so the ingredients defined but never used by a pizza are never downloaded or
+ * decoded. The decoded images are shared through the {@link SpriteCache}, so an image used by
+ * several ingredients, or by the sources compiled again, is decoded once while it's kept.
+ * When its size is not declared, only the header of the image is read at its definition to know it.
+ */
 @Getter
 public class Ingredient extends Assignment {
-    private final ASTNode pathNode;
+    private final SyntaxNode pathNode;
     private final Dimension size;
 
-    public Ingredient(@NotNull ASTNode ingNode) {
+    /**
+     * Where the image is: the URL written in the code, or the compiler resource or file found.
+     */
+    private final URL source;
+
+    /**
+     * Maximum number of pixels decoded by default, 16 megapixels, or 64MB of int pixels.
+     */
+    public static final long DEFAULT_MAX_PIXELS = 1L << 24;
+
+    private static volatile long maxPixels = DEFAULT_MAX_PIXELS;
+
+    /**
+     * If the sprites are scaled with bilinear interpolation, otherwise, with the nearest pixel.
+     */
+    private static volatile boolean smoothScaling = false;
+
+    public Ingredient(@NotNull SyntaxNode ingNode) {
         super(ingNode.left());
 
         this.pathNode = ingNode.left().left();
-        this.canvas = obtainImage();
+        this.source = locateImage();
 
         var resizeFound = ingNode.find(Expressions.RESIZE);
 
-        if (resizeFound.isEmpty()) size = new Dimension(canvas.getWidth(), canvas.getHeight());
+        if (resizeFound.isEmpty()) size = probeSize();
         else {
             int radius = Integer.parseInt(resizeFound.get(0).left().getValue().toString());
             size = new Dimension(radius, radius);
@@ -40,45 +71,164 @@ public class Ingredient extends Assignment {
     }
 
     /**
-     * First, checks if the path could be a URL, then it does a connection with the server provided
-     * the resource, if the path is not a URL, then, checks if it could be a path.
-     * @return A BufferedImage that contains the canvas read if all went good.
+     * The image is decoded by the first call while it's not kept by the cache, the threads that
+     * call it meanwhile wait for it.
+     * Since the image is decoded for this ingredient's size, it's shared with the ingredients of
+     * the same image and size only.
+     * @return the image of this ingredient.
      */
-    protected BufferedImage obtainImage() {
+    @Override
+    public BufferedImage getCanvas() {
+        return SpriteCache.shared().get(
+                "%s#decoded@%sx%s/%s".formatted(source, size.width, size.height, maxPixels),
+                this::obtainImage);
+    }
+
+    /**
+     * The image scaled to the size of this ingredient, built once while it's kept by the cache, so
+     * each placement of the ingredient is drawn without scaling it again.
+     * @return the premultiplied image of this ingredient's size.
+     */
+    public BufferedImage getSprite() {
+        return SpriteCache.shared().get(getSpriteKey(), this::scaleSprite);
+    }
+
+    /**
+     * Scales the image to the size of this ingredient without keeping the result in the cache, for
+     * the sprites kept by an atlas instead.
+     * @return a new premultiplied image of this ingredient's size.
+     */
+    public @NotNull BufferedImage scaleSprite() {
+        return SpriteCache.scale(getCanvas(), size.width, size.height, smoothScaling);
+    }
+
+    /**
+     * @return the name of this ingredient's sprite, the same for the ingredients with the same
+     * image and size.
+     */
+    public String getSpriteKey() {
+        return "%s@%sx%s%s".formatted(source, size.width, size.height, smoothScaling ? "~bilinear" : "");
+    }
+
+    /**
+     * First, checks if the path could be a URL, it's not connected until the image is needed.
+     * If the path is not a URL, then, checks if it is a compiler resource reference (this means the
+     * resource that the code is trying to access is in the resource of this sourceCodePath - the
+     * compiler sourceCodePath -), if it is not a compiler resource, then it could be an absolute or
+     * relative path.
+     * @return the location of the image.
+     */
+    protected URL locateImage() {
         try {
-            URL url = new URL(pathNode.getValue().toString());
-            URLConnection connection = url.openConnection();
-            connection.connect();
+            return new URL(pathNode.getValue().toString());
+        } catch (MalformedURLException e) {
+            PizzaCodeSource program = (PizzaCodeSource) pathNode.root().getValue();
+            Path path = Paths.get(pathNode.getValue().toString());
+
+            try {
+                return program.locateResource(path);
+            } catch (FileNotFoundException notFound) {
+                throw InvalidPathException.invalid(pathNode);
+            } catch (IOException notOpen) {
+                throw InvalidPathException.notOpen(pathNode);
+            }
+        }
+    }
 
-            try (InputStream input = connection.getInputStream()) {
-                return ImageIO.read(input);
+    /**
+     * Reads only the header of the image to know its size, its pixels are not decoded.
+     * @return the width and height of the image.
+     */
+    protected Dimension probeSize() {
+        try (InputStream input = source.openStream();
+             ImageInputStream stream = new MemoryCacheImageInputStream(input)) {
+            ImageReader reader = reader(stream);
+            try {
+                return new Dimension(reader.getWidth(0), reader.getHeight(0));
+            } finally {
+                reader.dispose();
             }
-        } catch (MalformedURLException  e) {
-            return readImageInDirectory();
         } catch (IOException e) {
             throw InvalidPathException.notOpen(pathNode);
         }
     }
 
     /**
-     * Checks if the path provided could be a directory.
-     * The method checks if the path is a compiler resource reference (this means the resource that
-     * the code is trying to access is in the resource of this sourceCodePath - the compiler sourceCodePath -).
-     * If it is not a compiler resource, then it could be an absolute or relative path.
+     * Decodes the image, its pixels are converted to premultiplied ints once here.
+     * An image greater than its size is subsampled while it's decoded, keeping at least twice its
+     * size so it can be scaled smoothly, and never more than {@link #getMaxPixels()} pixels; so a
+     * large photo drawn as a small ingredient is never decoded at its whole resolution.
      * @return A BufferedImage that contains the canvas read if all went good.
      */
-    protected BufferedImage readImageInDirectory() {
-        try {
-            PizzaCodeSource program = (PizzaCodeSource) pathNode.root().getValue();
-            Path path = Paths.get(pathNode.getValue().toString());
+    protected BufferedImage obtainImage() {
+        try (InputStream input = source.openStream();
+             ImageInputStream stream = new MemoryCacheImageInputStream(input)) {
+            ImageReader reader = reader(stream);
+            try {
+                int step = subsampling(reader.getWidth(0), reader.getHeight(0));
+                ImageReadParam param = reader.getDefaultReadParam();
+                if (step > 1) param.setSourceSubsampling(step, step, 0, 0);
 
-            try (var input = program.getResource(path)) {
-                return ImageIO.read(input);
+                return SpriteCache.normalize(reader.read(0, param));
+            } finally {
+                reader.dispose();
             }
-        } catch (FileNotFoundException e) {
-            throw InvalidPathException.invalid(pathNode);
         } catch (IOException e) {
             throw InvalidPathException.notOpen(pathNode);
         }
     }
+
+    private @NotNull ImageReader reader(@NotNull ImageInputStream stream) {
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+        if (!readers.hasNext()) throw InvalidPathException.notOpen(pathNode);
+
+        ImageReader reader = readers.next();
+        reader.setInput(stream, true, true);
+        return reader;
+    }
+
+    /**
+     * @return the number of source pixels, in each direction, for each decoded pixel.
+     */
+    private int subsampling(int width, int height) {
+        int step = Math.max(1, Math.min(
+                width / (2 * Math.max(1, size.width)),
+                height / (2 * Math.max(1, size.height))));
+
+        while (decodedPixels(width, step) * decodedPixels(height, step) > maxPixels) step++;
+        return step;
+    }
+
+    private static long decodedPixels(int length, int step) {
+        return (length + step - 1) / step;
+    }
+
+    /**
+     * @return the maximum number of pixels of a decoded image.
+     */
+    public static long getMaxPixels() {
+        return maxPixels;
+    }
+
+    /**
+     * @param maxPixels the maximum number of pixels of a decoded image, the images greater than it
+     *                  are subsampled.
+     */
+    public static void setMaxPixels(long maxPixels) {
+        if (maxPixels <= 0) throw new IllegalArgumentException(
+                "The maximum number of pixels must be greater than zero, but it is %s".formatted(maxPixels));
+        Ingredient.maxPixels = maxPixels;
+    }
+
+    public static boolean isSmoothScaling() {
+        return smoothScaling;
+    }
+
+    /**
+     * @param smoothScaling if the sprites are scaled with bilinear interpolation, instead of taking
+     *                      the nearest pixel of the image.
+     */
+    public static void setSmoothScaling(boolean smoothScaling) {
+        Ingredient.smoothScaling = smoothScaling;
+    }
 }
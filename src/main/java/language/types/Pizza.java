@@ -1,27 +1,44 @@
 package language.types;
 
-import compiler.parser.ASTNode;
+import compiler.parser.SyntaxNode;
 import language.util.*;
 import program.DefaultColors;
 import lombok.Getter;
+import lombok.Setter;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
 
 public class Pizza extends Assignment implements Drawable, Ingredible, Specializable {
-    private static int index = 0;
-
-    protected final @NotNull Sizes size;
-
-    protected final Sauce sauce;
-    protected final Cheese cheese;
+    @Getter protected final @NotNull Sizes size;
 
     @Getter private final LinkedHashSet<language.types.Topping> ingredients = new LinkedHashSet<>();
     @Getter private final LinkedHashSet<Specialty> specialties = new LinkedHashSet<>();
 
+    /**
+     * If it's greater than zero, the pizza is drawn by tiles of this size at the same time, see
+     * {@link TileRenderer}.
+     */
+    @Setter private int tileSize = 0;
+
+    /**
+     * The seed of the random points of this pizza when it's drawn by itself, the same seed always
+     * draws the same pizza.
+     */
+    @Getter @Setter private long seed = ThreadLocalRandom.current().nextLong();
+
+    /**
+     * The seed of the base layers: border, dough, sauce and cheese; the pizzas of the same size
+     * and base seed share those layers, so they are drawn once, see {@link #getBase(Sizes, long)}.
+     */
+    @Getter @Setter private long baseSeed = ThreadLocalRandom.current().nextLong();
+
     @Getter
     public enum Sizes {
         BIG(500),
@@ -44,7 +61,8 @@ public class Pizza extends Assignment implements Drawable, Ingredible, Specializ
         }
     }
 
-    public static abstract class Topping extends Assignment implements Drawable {
+    public static abstract class Topping extends Assignment {
+        protected final Pizza pizza;
         protected Sizes size;
 
         /**
@@ -53,47 +71,207 @@ public class Pizza extends Assignment implements Drawable, Ingredible, Specializ
          */
         public Topping(@NotNull Pizza pizza) {
             super();
+            this.pizza = pizza;
             this.size = pizza.size;
-            this.graphics = pizza.getGraphics();
         }
+
+        /**
+         * Adds the operations of this topping to the pizza being lowered.
+         */
+        public abstract void lower(@NotNull Lowering lowering);
     }
 
-    public Pizza(@NotNull ASTNode sizeNode) {
+    /**
+     * The operations of a pizza while it's lowered, its toppings add the blits of their sprites.
+     * It's made for each lowering, so the same pizza always gives the same operations for the same
+     * atlas and seeds.
+     */
+    public static final class Lowering {
+        private final List<DrawOp> ops = new ArrayList<>();
+        private final @Nullable SpriteAtlas atlas;
+        private final SplittableRandom random;
+
+        private Lowering(@Nullable SpriteAtlas atlas, long seed) {
+            this.atlas = atlas;
+            this.random = new SplittableRandom(seed);
+        }
+
+        /**
+         * Must be called by each layer when it's lowered, the layers are lowered in order, so each
+         * one always gets the same generator for the same seed.
+         * @return a new generator for the layer.
+         */
+        public @NotNull RandomGenerator split() {
+            return random.split();
+        }
+
+        /**
+         * Adds the blit of the ingredient's sprite centered at a point, from the atlas if the
+         * sprite is in it, otherwise from its own image.
+         */
+        public void drawIngredient(@NotNull Ingredient ing, @NotNull Point center) {
+            int x = (int) (center.x - ing.getSize().getWidth() / 2);
+            int y = (int) (center.y - ing.getSize().getHeight() / 2);
+
+            Rectangle region = atlas == null ? null : atlas.region(ing.getSpriteKey());
+            DrawOp.Bounds source = region == null
+                    ? new DrawOp.Bounds(0, 0, ing.getSize().width, ing.getSize().height)
+                    : new DrawOp.Bounds(region.x, region.y, region.width, region.height);
+            ops.add(new DrawOp.Blit(ing.getSpriteKey(), x, y, source));
+        }
+    }
+
+    public Pizza(@NotNull SyntaxNode sizeNode) {
         super(sizeNode);
         this.size = Sizes.cast(sizeNode.getValue().toString());
+    }
 
-        canvas = new BufferedImage(
-                size.circle.diameter,
-                size.circle.diameter,
-                BufferedImage.TYPE_INT_ARGB);
-        graphics = (Graphics2D) canvas.getGraphics();
+    private Pizza(@NotNull Pizza pizza) {
+        super(pizza);
+        this.size = pizza.size;
 
-        this.sauce = new Sauce(this);
-        this.cheese = new Cheese(this);
+        pizza.ingredients.forEach(t -> add(t.ingredient, t.quantity));
+        pizza.specialties.forEach(this::add);
     }
 
+    /**
+     * The copy has the same declaration, ingredients and specialties, but its own toppings and
+     * seeds, so it can be drawn without changing this pizza.
+     * @return a copy of this pizza.
+     */
+    public @NotNull Pizza copy() {
+        return new Pizza(this);
+    }
+
+    /**
+     * The canvas is only made when it's needed, since the pizzas drawn from a render plan are drawn
+     * on the canvases of its pages instead.
+     * @return the canvas of this pizza, with its graphics object.
+     */
     @Override
-    public String getImageName() {
-        return imageName == null ? "pizza" + index++ : imageName;
+    public BufferedImage getCanvas() {
+        if (canvas == null) {
+            canvas = new BufferedImage(size.circle.diameter, size.circle.diameter, BufferedImage.TYPE_INT_ARGB);
+            graphics = (Graphics2D) canvas.getGraphics();
+        }
+        return canvas;
+    }
+
+    /**
+     * @return the ingredients drawn by this pizza, by itself or by its specialties.
+     */
+    public @NotNull Set<Ingredient> usedIngredients() {
+        Set<Ingredient> used = new LinkedHashSet<>();
+        ingredients.forEach(t -> used.add(t.ingredient));
+        specialties.forEach(s -> s.ingredients.forEach(t -> used.add(t.ingredient)));
+        return used;
     }
 
+    /**
+     * Draws the ops of the pizza on its canvas with its own seeds, by tiles if it has a tile size;
+     * each sprite is drawn from its own image.
+     */
     @Override
     public void draw() {
-        setComposite(AlphaComposite.Clear);
-        fillRect(0, 0, size.circle.diameter, size.circle.diameter);
-        setComposite(AlphaComposite.SrcOver);
+        RenderBackend.of(tileSize, images(null, baseSeed)).render(getCanvas(), lower(null, seed, baseSeed));
+    }
+
+    /**
+     * Lowers the draws of the pizza to operations, without changing the pizza: the same atlas and
+     * seeds always give the same operations; the ops can be replayed on any canvas of the pizza's
+     * size, see {@link RenderBackend}.
+     * @param atlas    the atlas with the sprites of the pizza, or null to blit each sprite from its
+     *                 own image.
+     * @param seed     the seed of the random points of the pizza.
+     * @param baseSeed the seed of the base layers, see {@link #getBase(Sizes, long)}.
+     * @return the operations in the order they are drawn, the images of their blits are given by
+     * {@link #images(SpriteAtlas, long)}.
+     */
+    public @NotNull List<DrawOp> lower(@Nullable SpriteAtlas atlas, long seed, long baseSeed) {
+        Lowering lowering = new Lowering(atlas, seed);
+        int diameter = size.circle.diameter;
+
+        //the base replaces every pixel of the canvas
+        lowering.ops.add(new DrawOp.SetComposite(DrawOp.Rule.SRC));
+        lowering.ops.add(new DrawOp.Blit(baseKey(size, baseSeed), 0, 0, new DrawOp.Bounds(0, 0, diameter, diameter)));
+        lowering.ops.add(new DrawOp.SetComposite(DrawOp.Rule.SRC_OVER));
+
+        specialties.forEach(s -> s.lower(lowering));
+        ingredients.forEach(t -> t.lower(lowering));
+        return List.copyOf(lowering.ops);
+    }
+
+    /**
+     * @return the images named by the blits of this pizza lowered with the atlas and base seed, by
+     * their keys.
+     */
+    public @NotNull Map<String, BufferedImage> images(@Nullable SpriteAtlas atlas, long baseSeed) {
+        Map<String, BufferedImage> images = new HashMap<>();
+        images.put(baseKey(size, baseSeed), getBase(size, baseSeed));
+        usedIngredients().forEach(ing -> images.put(ing.getSpriteKey(),
+                atlas != null && atlas.region(ing.getSpriteKey()) != null ? atlas.getImage() : ing.getSprite()));
+        return images;
+    }
+
+    /**
+     * @return the key of the base layers of a size and base seed.
+     */
+    public static @NotNull String baseKey(@NotNull Sizes size, long baseSeed) {
+        return "base:%s#%s".formatted(size, baseSeed);
+    }
+
+    /**
+     * The base layers are drawn once while they are kept by the sprite cache, so the pizzas of the
+     * same size and base seed share them.
+     * @return the image with the base layers of a size and base seed.
+     */
+    public static @NotNull BufferedImage getBase(@NotNull Sizes size, long baseSeed) {
+        return SpriteCache.shared().get(baseKey(size, baseSeed), () -> drawBase(size, baseSeed));
+    }
 
-        //draw border
-        setColor(DefaultColors.PIZZA_BORDER.getColor());
-        fillCircle(size.circle);
-        //draw dough
-        setColor(DefaultColors.PIZZA_FILL.getColor());
-        fillCircle(size.circle.resize(-30));
+    /**
+     * Draws the layers that are the same for all the pizzas of a size and base seed.
+     * @return a new image with the border, the dough, the sauce and the cheese.
+     */
+    public static @NotNull BufferedImage drawBase(@NotNull Sizes size, long baseSeed) {
+        List<DrawOp> ops = new ArrayList<>();
+        //border
+        ops.add(new DrawOp.SetColor(DefaultColors.PIZZA_BORDER.getColor().getRGB()));
+        ops.add(new DrawOp.FillOval(size.circle));
+        //dough
+        ops.add(new DrawOp.SetColor(DefaultColors.PIZZA_FILL.getColor().getRGB()));
+        ops.add(new DrawOp.FillOval(size.circle.resize(-30)));
+
+        lowerSauce(ops, size);
+        lowerCheese(ops, size, new SplittableRandom(baseSeed));
+
+        BufferedImage base = new BufferedImage(size.circle.diameter, size.circle.diameter, BufferedImage.TYPE_INT_ARGB);
+        new Java2DBackend(Map.of()).render(base, ops);
+        return base;
+    }
+
+    private static void lowerSauce(@NotNull List<DrawOp> ops, @NotNull Sizes size) {
+        ops.add(new DrawOp.SetColor(DefaultColors.SAUCE.getColor().getRGB()));
+        ops.add(new DrawOp.FillOval(size.circle.resize(-50)));
+    }
+
+    private static void lowerCheese(@NotNull List<DrawOp> ops, @NotNull Sizes size, @NotNull RandomGenerator random) {
+        List<DrawOp.Line> lines = new ArrayList<>();
+        Circle circle = size.circle.resize(-55);
+
+        ops.add(new DrawOp.SetColor(DefaultColors.BURNED_CHEESE.getColor().getRGB()));
+        ops.add(new DrawOp.FillOval(circle));
+
+        for (int i = 0; i <= 400; i++) {
+            lines.add(new DrawOp.Line(new Segment(
+                    circle.generateRandomEdgePoint(random),
+                    circle.generateRandomEdgePoint(random)), 10.0f));
+        }
 
-        sauce.draw();
-        cheese.draw();
-        specialties.forEach(Specialty::draw);
-        ingredients.forEach(language.types.Topping::draw);
+        ops.add(new DrawOp.SetStroke(10.0f));
+        ops.add(new DrawOp.SetColor(DefaultColors.CHEESE.getColor().getRGB()));
+        ops.add(new DrawOp.Segments(lines));
+        ops.add(new DrawOp.SetStroke(1.0f));
     }
 
     @Override
@@ -108,8 +286,7 @@ public class Pizza extends Assignment implements Drawable, Ingredible, Specializ
 
     @Override
     public void add(@NotNull Specialty specialty) {
-        specialty.setPizza(this);
-        specialties.add(specialty);
+        specialties.add(specialty.bind(this));
     }
 
     @Override
@@ -141,42 +318,4 @@ public class Pizza extends Assignment implements Drawable, Ingredible, Specializ
     public int hashCode() {
         return imageName == null ? 0 : imageName.hashCode();
     }
-
-    public static class Sauce extends Topping {
-        public Sauce(@NotNull Pizza pizza) {
-            super(pizza);
-        }
-
-        @Override
-        public void draw() {
-            graphics.setColor(DefaultColors.SAUCE.getColor());
-            fillCircle(size.getCircle().resize(-50));
-        }
-    }
-
-    public static class Cheese extends Topping {
-        public Cheese(@NotNull Pizza pizza) {
-            super(pizza);
-        }
-
-        @Override
-        public void draw() {
-            List<Segment> segments = new ArrayList<>();
-            Circle circle = size.getCircle().resize(-55);
-
-            graphics.setColor(DefaultColors.BURNED_CHEESE.getColor());
-            fillCircle(circle);
-
-            for (int i = 0; i <= 400; i++) {
-                segments.add(new Segment(
-                        circle.generateRandomEdgePoint(),
-                        circle.generateRandomEdgePoint()));
-            }
-
-            graphics.setStroke(new BasicStroke(10.0f));
-            graphics.setColor(DefaultColors.CHEESE.getColor());
-            segments.forEach(this::drawSegment);
-            graphics.setStroke(new BasicStroke(1.0f));
-        }
-    }
 }
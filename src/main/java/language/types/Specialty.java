@@ -1,7 +1,6 @@
 package language.types;
 
-import compiler.parser.ASTNode;
-import language.util.Drawable;
+import compiler.parser.SyntaxNode;
 import language.util.Ingredible;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Unmodifiable;
@@ -10,23 +9,33 @@ import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
 
-public class Specialty extends Assignment implements Drawable, Ingredible {
+public class Specialty extends Assignment implements Ingredible {
     public final @Unmodifiable LinkedHashMap<Ingredient, Integer> ingredientMap;
     public LinkedHashSet<Topping> ingredients = new LinkedHashSet<>();
-    private Pizza pizza;
+    private final Pizza pizza;
 
-    public Specialty(@NotNull ASTNode node, LinkedHashMap<Ingredient, Integer> ingredients) {
+    public Specialty(@NotNull SyntaxNode node, LinkedHashMap<Ingredient, Integer> ingredients) {
         super(node);
         this.ingredientMap = ingredients;
+        this.pizza = null;
+    }
+
+    private Specialty(@NotNull Specialty specialty, @NotNull Pizza pizza) {
+        super(specialty);
+        this.ingredientMap = specialty.ingredientMap;
+        this.pizza = pizza;
+        add(ingredientMap);
     }
 
     /**
      * Must be used to draw the specialty.
+     * The declared specialty is shared by every pizza that uses it, even from other sources when it
+     * is included, so it's never modified; each pizza draws its own copy.
      * @param pizza the pizza when specialty will be drew.
+     * @return a copy of this specialty with the toppings of that pizza.
      */
-    public void setPizza(Pizza pizza) {
-        this.pizza = pizza;
-        add(ingredientMap);
+    public @NotNull Specialty bind(@NotNull Pizza pizza) {
+        return new Specialty(this, pizza);
     }
 
     @Override
@@ -39,8 +48,10 @@ public class Specialty extends Assignment implements Drawable, Ingredible {
         ingredients.forEach(this::add);
     }
 
-    @Override
-    public void draw() {
-        ingredients.forEach(Topping::draw);
+    /**
+     * Lowers the toppings of the pizza bound to this specialty, in their order.
+     */
+    public void lower(@NotNull Pizza.Lowering lowering) {
+        ingredients.forEach(t -> t.lower(lowering));
     }
 }
@@ -6,6 +6,7 @@ import org.jetbrains.annotations.NotNull;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.random.RandomGenerator;
 
 public class Topping extends Pizza.Topping {
     public final Ingredient ingredient;
@@ -40,8 +41,9 @@ public class Topping extends Pizza.Topping {
     }
 
     @Override
-    public void draw() {
+    public void lower(@NotNull Pizza.Lowering lowering) {
         Circle circle = size.getCircle().resize(-70);
+        RandomGenerator random = lowering.split();
         int divRadius = circle.radius / rows;
         int minRadius = divRadius / 2;
 
@@ -56,8 +58,9 @@ public class Topping extends Pizza.Topping {
             circle.generateRandomRangedPoints(
                             minRadius + divRadius * (rows -1),
                             divRadius * rows,
-                            d)
-                    .forEach(p -> drawIngredient(ingredient, p));
+                            d,
+                            random)
+                    .forEach(p -> lowering.drawIngredient(ingredient, p));
             rows--;
         });
         rows = distribution.size();
@@ -5,7 +5,7 @@ import org.jetbrains.annotations.NotNull;
 import java.awt.*;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
+import java.util.random.RandomGenerator;
 
 public class Circle {
     public final int radius;
@@ -18,13 +18,18 @@ public class Circle {
         this.center = center;
     }
 
+    public void fill(@NotNull Graphics graphics) {
+        graphics.fillOval(center.x - radius, center.y - radius, diameter, diameter);
+    }
+
     public Circle resize(int radiusToAdd) {
         return new Circle(radius + radiusToAdd, center);
     }
 
-    public Point generateRandomEdgePoint() {
-        Random random = new Random();
-
+    /**
+     * @param random the generator of the pizza drawn, so the same seed always gives the same point.
+     */
+    public Point generateRandomEdgePoint(@NotNull RandomGenerator random) {
         double theta = 2 * Math.PI * random.nextDouble();
 
         int x = (int) (this.radius * Math.cos(theta)) + center.x;
@@ -33,7 +38,10 @@ public class Circle {
         return new Point(x, y);
     }
 
-    public List<Point> generateRandomRangedPoints(int r1, int r2, int nPoints) {
+    /**
+     * @param random the generator of the pizza drawn, so the same seed always gives the same points.
+     */
+    public List<Point> generateRandomRangedPoints(int r1, int r2, int nPoints, @NotNull RandomGenerator random) {
         if (r1 > this.radius || r2 > this.radius)
             throw new RuntimeException("interval radius is greater than radius");
 
@@ -42,7 +50,6 @@ public class Circle {
 
         int minRadius = Math.min(r1, r2);
 
-        Random random = new Random();
         List<Point> points = new ArrayList<>();
 
         double divTheta = 2 * Math.PI / nPoints;
@@ -0,0 +1,134 @@
+package language.util;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * A draw operation of a render plan, made only of plain values, so the operations can be compared,
+ * kept and drawn later by any {@link RenderBackend}; for example once for each tile of the canvas
+ * that it changes. The images are named by their keys, and each backend gets them by those keys.
+ * The operations that only change the state of the backend have no bounds, and must be done on
+ * every tile.
+ */
+public sealed interface DrawOp {
+    /**
+     * @return the pixels that the operation may change, or null if it only changes the state of
+     * the backend.
+     */
+    default @Nullable Bounds bounds() {
+        return null;
+    }
+
+    /**
+     * A rectangle of pixels.
+     */
+    record Bounds(int x, int y, int width, int height) {
+        public boolean isEmpty() {
+            return width <= 0 || height <= 0;
+        }
+
+        public @NotNull Bounds union(@NotNull Bounds bounds) {
+            int x1 = Math.min(x, bounds.x);
+            int y1 = Math.min(y, bounds.y);
+            int x2 = Math.max(x + width, bounds.x + bounds.width);
+            int y2 = Math.max(y + height, bounds.y + bounds.height);
+            return new Bounds(x1, y1, x2 - x1, y2 - y1);
+        }
+    }
+
+    /**
+     * The way the pixels drawn are mixed with the pixels of the canvas.
+     */
+    enum Rule {
+        /**
+         * The pixels drawn replace the pixels of the canvas.
+         */
+        SRC,
+        /**
+         * The pixels drawn are blended over the pixels of the canvas by their alpha.
+         */
+        SRC_OVER
+    }
+
+    /**
+     * @param argb the color with its alpha, in the bits of {@link java.awt.Color#getRGB()}.
+     */
+    record SetColor(int argb) implements DrawOp {
+    }
+
+    /**
+     * @param width the width of the lines drawn after it.
+     */
+    record SetStroke(float width) implements DrawOp {
+    }
+
+    record SetComposite(@NotNull Rule rule) implements DrawOp {
+    }
+
+    record FillRect(int x, int y, int width, int height) implements DrawOp {
+        @Override
+        public Bounds bounds() {
+            return new Bounds(x, y, width, height);
+        }
+    }
+
+    record FillOval(int x, int y, int width, int height) implements DrawOp {
+        public FillOval(@NotNull Circle circle) {
+            this(circle.center.x - circle.radius, circle.center.y - circle.radius, circle.diameter, circle.diameter);
+        }
+
+        @Override
+        public Bounds bounds() {
+            return new Bounds(x, y, width, height);
+        }
+    }
+
+    /**
+     * A line drawn with the current stroke, its bounds include the width of that stroke at any
+     * angle, with its square caps.
+     * @param width the width of the current stroke.
+     */
+    record Line(int x1, int y1, int x2, int y2, float width) implements DrawOp {
+        public Line(@NotNull Segment segment, float width) {
+            this(segment.a.x, segment.a.y, segment.b.x, segment.b.y, width);
+        }
+
+        @Override
+        public Bounds bounds() {
+            int pad = (int) Math.ceil(width) + 1;
+            int x = Math.min(x1, x2) - pad;
+            int y = Math.min(y1, y2) - pad;
+            return new Bounds(x, y, Math.abs(x2 - x1) + 2 * pad, Math.abs(y2 - y1) + 2 * pad);
+        }
+    }
+
+    /**
+     * A batch of lines drawn with the current stroke, its bounds include all the lines.
+     */
+    record Segments(List<Line> lines) implements DrawOp {
+        public Segments {
+            lines = List.copyOf(lines);
+        }
+
+        @Override
+        public Bounds bounds() {
+            Bounds bounds = null;
+            for (Line line : lines) bounds = bounds == null ? line.bounds() : bounds.union(line.bounds());
+            return bounds == null ? new Bounds(0, 0, 0, 0) : bounds;
+        }
+    }
+
+    /**
+     * A rectangle of an image copied to the canvas without scaling it.
+     * @param sprite the key of the image, an atlas keeps each sprite at its own rectangle.
+     * @param source the rectangle of the sprite in that image.
+     */
+    record Blit(@NotNull String sprite, int x, int y, @NotNull Bounds source) implements DrawOp {
+        @Override
+        public Bounds bounds() {
+            return new Bounds(x, y, source.width(), source.height());
+        }
+    }
+}
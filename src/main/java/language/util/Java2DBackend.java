@@ -0,0 +1,61 @@
+package language.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Draws all the operations on the graphics object of the canvas, one after another; the plain
+ * values of each operation are turned into the colors, strokes, composites and images of Java2D.
+ */
+public class Java2DBackend implements RenderBackend {
+    private final Map<String, ? extends Image> images;
+
+    /**
+     * @param images the images of the blits, by their keys.
+     */
+    public Java2DBackend(@NotNull Map<String, ? extends Image> images) {
+        this.images = images;
+    }
+
+    @Override
+    public void render(@NotNull BufferedImage canvas, @NotNull List<DrawOp> ops) {
+        Graphics2D graphics = canvas.createGraphics();
+        try {
+            ops.forEach(op -> apply(graphics, op));
+        } finally {
+            graphics.dispose();
+        }
+    }
+
+    /**
+     * Does an operation on a graphics object.
+     * @throws IllegalArgumentException if a blit names an image that this backend doesn't have.
+     */
+    void apply(@NotNull Graphics2D graphics, @NotNull DrawOp op) {
+        if (op instanceof DrawOp.SetColor color) graphics.setColor(new Color(color.argb(), true));
+        else if (op instanceof DrawOp.SetStroke stroke) graphics.setStroke(new BasicStroke(stroke.width()));
+        else if (op instanceof DrawOp.SetComposite composite) graphics.setComposite(switch (composite.rule()) {
+            case SRC -> AlphaComposite.Src;
+            case SRC_OVER -> AlphaComposite.SrcOver;
+        });
+        else if (op instanceof DrawOp.FillRect rect) graphics.fillRect(rect.x(), rect.y(), rect.width(), rect.height());
+        else if (op instanceof DrawOp.FillOval oval) graphics.fillOval(oval.x(), oval.y(), oval.width(), oval.height());
+        else if (op instanceof DrawOp.Line line) graphics.drawLine(line.x1(), line.y1(), line.x2(), line.y2());
+        else if (op instanceof DrawOp.Segments segments)
+            segments.lines().forEach(line -> graphics.drawLine(line.x1(), line.y1(), line.x2(), line.y2()));
+        else if (op instanceof DrawOp.Blit blit) {
+            Image image = images.get(blit.sprite());
+            if (image == null) throw new IllegalArgumentException("There is no image for the sprite " + blit.sprite());
+
+            DrawOp.Bounds source = blit.source();
+            graphics.drawImage(image,
+                    blit.x(), blit.y(), blit.x() + source.width(), blit.y() + source.height(),
+                    source.x(), source.y(), source.x() + source.width(), source.y() + source.height(),
+                    null);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package language.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replays the operations of a render plan on a canvas, the operations are always done in the order
+ * they are given, whatever the way the backend draws them.
+ */
+public interface RenderBackend {
+    /**
+     * @param canvas the image where the operations are drawn.
+     * @param ops    the operations in the order they are drawn.
+     */
+    void render(@NotNull BufferedImage canvas, @NotNull List<DrawOp> ops);
+
+    /**
+     * @param tileSize if it's greater than zero, the size of the tiles drawn at the same time.
+     * @param images   the images of the blits, by their keys.
+     * @return the backend that draws a whole canvas with Java2D, or by tiles of that size.
+     */
+    static @NotNull RenderBackend of(int tileSize, @NotNull Map<String, ? extends Image> images) {
+        return tileSize > 0 ? new TileRenderer(tileSize, images) : new Java2DBackend(images);
+    }
+}
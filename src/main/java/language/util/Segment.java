@@ -17,6 +17,10 @@ public class Segment {
         this(p1.x, p1.y, p2.x, p2.y);
     }
 
+    public void draw(@NotNull Graphics graphics) {
+        graphics.drawLine(a.x, a.y, b.x, b.y);
+    }
+
     @Override
     public String toString() {
         return "Segment(A(%s, %s), B(%s, %s))".formatted(a.x, a.y, b.x, b.y);
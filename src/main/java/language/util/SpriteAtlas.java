@@ -0,0 +1,87 @@
+package language.util;
+
+import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.*;
+import java.util.List;
+
+/**
+ * One image with all the sprites of a program, each one at its own rectangle, so the pizzas copy
+ * their toppings from a single raster instead of an image for each ingredient.
+ * The sprites are packed in shelves: sorted from the tallest, each one is placed at the right of
+ * the previous one, and when the shelf is full a new one is started below the tallest sprite.
+ */
+public class SpriteAtlas {
+    @Getter private final BufferedImage image;
+    private final Map<String, Rectangle> regions;
+
+    private SpriteAtlas(@NotNull BufferedImage image, @NotNull Map<String, Rectangle> regions) {
+        this.image = image;
+        this.regions = regions;
+    }
+
+    /**
+     * @param sprites the sprites keyed by their names, the same sprite must not have two names.
+     * @return the atlas with all the sprites, or null if there are no sprites.
+     */
+    public static @Nullable SpriteAtlas pack(@NotNull Map<String, BufferedImage> sprites) {
+        if (sprites.isEmpty()) return null;
+
+        List<Map.Entry<String, BufferedImage>> sorted = new ArrayList<>(sprites.entrySet());
+        sorted.sort(Comparator.comparingInt((Map.Entry<String, BufferedImage> e) -> e.getValue().getHeight())
+                .reversed()
+                .thenComparing(Map.Entry::getKey));
+
+        long area = 0;
+        int maxWidth = 0;
+        for (var sprite : sorted) {
+            area += (long) sprite.getValue().getWidth() * sprite.getValue().getHeight();
+            maxWidth = Math.max(maxWidth, sprite.getValue().getWidth());
+        }
+        int width = Math.max(maxWidth, (int) Math.ceil(Math.sqrt(area)));
+
+        Map<String, Rectangle> regions = new HashMap<>();
+        int x = 0, y = 0, shelfHeight = 0;
+        for (var sprite : sorted) {
+            int w = sprite.getValue().getWidth();
+            int h = sprite.getValue().getHeight();
+
+            if (x + w > width) {
+                x = 0;
+                y += shelfHeight;
+                shelfHeight = 0;
+            }
+
+            regions.put(sprite.getKey(), new Rectangle(x, y, w, h));
+            x += w;
+            shelfHeight = Math.max(shelfHeight, h);
+        }
+
+        BufferedImage image = new BufferedImage(width, Math.max(1, y + shelfHeight), BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setComposite(AlphaComposite.Src);
+        for (var sprite : sorted) {
+            Rectangle region = regions.get(sprite.getKey());
+            graphics.drawImage(sprite.getValue(), region.x, region.y, null);
+        }
+        graphics.dispose();
+
+        return new SpriteAtlas(image, regions);
+    }
+
+    /**
+     * @param name the name of the sprite.
+     * @return the rectangle of the sprite in the atlas' image, or null if it's not in the atlas.
+     */
+    public @Nullable Rectangle region(@NotNull String name) {
+        return regions.get(name);
+    }
+
+    public int size() {
+        return regions.size();
+    }
+}
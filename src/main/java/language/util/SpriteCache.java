@@ -0,0 +1,242 @@
+package language.util;
+
+import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide cache of the decoded ingredient images, keyed by the resolved location of each image.
+ * The images used the least recently are removed when the bytes of all the images' pixels are
+ * greater than its capacity; an image greater than the whole capacity is never kept.
+ * An image is decoded once even if several threads ask for it at the same time.
+ */
+public class SpriteCache {
+    /**
+     * Bytes of pixels kept by the shared cache.
+     */
+    public static final long DEFAULT_CAPACITY = 64L << 20;
+
+    private static final SpriteCache shared = new SpriteCache(DEFAULT_CAPACITY);
+
+    /**
+     * Number of decoded images converted by {@link #normalize(BufferedImage)}.
+     */
+    private static final AtomicLong conversions = new AtomicLong();
+
+    @Getter private final long capacity;
+    private long bytes = 0;
+
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    /**
+     * The images in order of use, from the least recently used.
+     */
+    private final LinkedHashMap<String, BufferedImage> sprites = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * The images being decoded, so the threads that ask for them wait instead of decoding them again.
+     * It's guarded by this cache, as the images kept, so an image is always in one of both maps
+     * until its decoding ends.
+     */
+    private final HashMap<String, FutureTask<BufferedImage>> decoding = new HashMap<>();
+
+    public SpriteCache(long capacity) {
+        this.capacity = capacity;
+    }
+
+    public static @NotNull SpriteCache shared() {
+        return shared;
+    }
+
+    /**
+     * A thread that waits for an image decoded by another thread counts as a hit, only the thread
+     * that decodes it counts as a miss.
+     *
+     * @param location the resolved location of the image.
+     * @param decoder  decodes the image when it's not kept.
+     * @return the decoded image.
+     */
+    public BufferedImage get(@NotNull String location, @NotNull Supplier<BufferedImage> decoder) {
+        FutureTask<BufferedImage> task;
+        boolean decodes = false;
+
+        synchronized (this) {
+            BufferedImage sprite = sprites.get(location);
+            if (sprite != null) {
+                hits++;
+                return sprite;
+            }
+
+            task = decoding.get(location);
+            if (task == null) {
+                task = new FutureTask<>(decoder::get);
+                decoding.put(location, task);
+                decodes = true;
+                misses++;
+            } else hits++;
+        }
+
+        if (decodes) {
+            task.run();
+            synchronized (this) {
+                try {
+                    put(location, task.get());
+                } catch (ExecutionException | InterruptedException ignored) {
+                    //the error is thrown below to each thread that waits for it
+                } finally {
+                    decoding.remove(location);
+                }
+            }
+        }
+
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            if (e.getCause() instanceof Error cause) throw cause;
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("The decoding of %s was interrupted".formatted(location), e);
+        }
+    }
+
+    private synchronized void put(@NotNull String location, BufferedImage sprite) {
+        if (sprite == null) return;
+
+        long weight = weight(sprite);
+        if (weight > capacity) return;
+
+        BufferedImage replaced = sprites.put(location, sprite);
+        if (replaced != null) bytes -= weight(replaced);
+        bytes += weight;
+
+        Iterator<Map.Entry<String, BufferedImage>> eldest = sprites.entrySet().iterator();
+        while (bytes > capacity && eldest.hasNext()) {
+            Map.Entry<String, BufferedImage> entry = eldest.next();
+            if (entry.getKey().equals(location)) continue;
+
+            bytes -= weight(entry.getValue());
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * @return the bytes of the image's pixels.
+     */
+    public static long weight(@NotNull BufferedImage sprite) {
+        DataBuffer buffer = sprite.getRaster().getDataBuffer();
+        return (long) buffer.getSize() * buffer.getNumBanks() * DataBuffer.getDataTypeSize(buffer.getDataType()) / 8;
+    }
+
+    /**
+     * Converts a decoded image to premultiplied int pixels, the format drawn by the fastest loops.
+     * The images decoded may be indexed, have bytes for each component or a custom format, and
+     * each draw of them would convert their pixels again.
+     *
+     * @return the same image if it already has that format, otherwise, a copy with that format.
+     */
+    public static @NotNull BufferedImage normalize(@NotNull BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_INT_ARGB_PRE) return image;
+
+        BufferedImage normalized = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D graphics = normalized.createGraphics();
+        graphics.setComposite(AlphaComposite.Src);
+        graphics.drawImage(image, 0, 0, null);
+        graphics.dispose();
+
+        conversions.incrementAndGet();
+        return normalized;
+    }
+
+    /**
+     * @return the number of decoded images converted to premultiplied int pixels.
+     */
+    public static long getConversions() {
+        return conversions.get();
+    }
+
+    /**
+     * Scales an image to the size it's drawn with.
+     * By default, each pixel is taken from the nearest pixel of the image, as the canvases drew the
+     * images before they were scaled once; if it's smooth, the image is halved with bilinear
+     * interpolation while it's greater than twice that size, so each step only mixes neighbour
+     * pixels.
+     * The result is premultiplied, as the images drawn on the canvases are blended.
+     *
+     * @param smooth if the bilinear interpolation is used.
+     * @return a new image of that size.
+     */
+    public static @NotNull BufferedImage scale(@NotNull BufferedImage image, int width, int height, boolean smooth) {
+        if (!smooth) return draw(image, width, height, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+
+        BufferedImage scaled = image;
+        int w = image.getWidth();
+        int h = image.getHeight();
+
+        do {
+            w = w / 2 > width ? w / 2 : width;
+            h = h / 2 > height ? h / 2 : height;
+            scaled = draw(scaled, w, h, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        } while (w != width || h != height);
+
+        return scaled;
+    }
+
+    private static @NotNull BufferedImage draw(@NotNull BufferedImage image, int width, int height, Object interpolation) {
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D graphics = scaled.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, interpolation);
+        graphics.drawImage(image, 0, 0, width, height, null);
+        graphics.dispose();
+        return scaled;
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized int size() {
+        return sprites.size();
+    }
+
+    /**
+     * Removes all the images, the counters are kept.
+     */
+    public synchronized void clear() {
+        sprites.clear();
+        bytes = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "SpriteCache(%s sprites, %s/%s bytes, %s hits, %s misses, %s evictions, %s conversions)"
+                .formatted(sprites.size(), bytes, capacity, hits, misses, evictions, conversions.get());
+    }
+}
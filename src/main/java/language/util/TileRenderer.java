@@ -0,0 +1,86 @@
+package language.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Draws the operations recorded from a canvas split in square tiles, each tile is drawn on the
+ * common ForkJoin pool with its own image, and copied to the canvas when it's done.
+ * Each operation is done only on the tiles that its bounds touch, in the same order they were
+ * recorded; the operations without bounds are done on every tile.
+ */
+public class TileRenderer implements RenderBackend {
+    private final int tileSize;
+
+    /**
+     * Draws the operations of each tile.
+     */
+    private final Java2DBackend tiles;
+
+    /**
+     * @param tileSize the width and height of each tile.
+     * @param images   the images of the blits, by their keys.
+     */
+    public TileRenderer(int tileSize, @NotNull Map<String, ? extends Image> images) {
+        if (tileSize <= 0) throw new IllegalArgumentException("The tile size must be greater than zero");
+        this.tileSize = tileSize;
+        this.tiles = new Java2DBackend(images);
+    }
+
+    /**
+     * @param canvas the image where the operations are drawn, its pixels are replaced.
+     * @param ops    the operations in the order they are drawn.
+     */
+    @Override
+    public void render(@NotNull BufferedImage canvas, @NotNull List<DrawOp> ops) {
+        int columns = (canvas.getWidth() + tileSize - 1) / tileSize;
+        int rows = (canvas.getHeight() + tileSize - 1) / tileSize;
+
+        List<List<DrawOp>> bins = new ArrayList<>(columns * rows);
+        for (int i = 0; i < columns * rows; i++) bins.add(new ArrayList<>());
+
+        for (DrawOp op : ops) {
+            DrawOp.Bounds bounds = op.bounds();
+            if (bounds == null) {
+                bins.forEach(bin -> bin.add(op));
+                continue;
+            }
+            if (bounds.isEmpty()) continue;
+
+            int firstColumn = Math.max(0, Math.floorDiv(bounds.x(), tileSize));
+            int lastColumn = Math.min(columns - 1, Math.floorDiv(bounds.x() + bounds.width() - 1, tileSize));
+            int firstRow = Math.max(0, Math.floorDiv(bounds.y(), tileSize));
+            int lastRow = Math.min(rows - 1, Math.floorDiv(bounds.y() + bounds.height() - 1, tileSize));
+
+            for (int row = firstRow; row <= lastRow; row++)
+                for (int column = firstColumn; column <= lastColumn; column++)
+                    bins.get(row * columns + column).add(op);
+        }
+
+        IntStream.range(0, bins.size()).parallel().forEach(i -> {
+            int x = (i % columns) * tileSize;
+            int y = (i / columns) * tileSize;
+            int width = Math.min(tileSize, canvas.getWidth() - x);
+            int height = Math.min(tileSize, canvas.getHeight() - y);
+
+            BufferedImage tile = new BufferedImage(
+                    canvas.getColorModel(),
+                    canvas.getColorModel().createCompatibleWritableRaster(width, height),
+                    canvas.isAlphaPremultiplied(),
+                    null);
+            Graphics2D graphics = tile.createGraphics();
+            graphics.translate(-x, -y);
+            bins.get(i).forEach(op -> tiles.apply(graphics, op));
+            graphics.dispose();
+
+            //the tiles don't overlap, so they are copied to the canvas at the same time
+            canvas.getRaster().setDataElements(x, y, tile.getRaster());
+        });
+    }
+}
@@ -2,10 +2,10 @@ package program;
 
 import compiler.semantic.SemanticAnalyzer;
 import language.Instruction;
-import language.Make;
-import language.types.*;
-import language.util.Drawable;
+import language.util.RenderBackend;
+import lombok.Setter;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
@@ -13,60 +13,155 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.LinkedHashSet;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * This class manages the draws, and imports them.
+ * The instructions are lowered to a {@link RenderPlan} first; each page of the plan has its own
+ * canvas, so with more than one worker the pages are drawn and exported at the same time; the exports are still reported in the order of the code.
  */
 public class DrawManager {
     private final LinkedHashSet<Instruction> instructions;
     private final Path sourcePath;
     private final String imgExtension;
 
+    /**
+     * Number of pizzas drawn at the same time.
+     */
+    @Setter private int workers = 1;
+
+    /**
+     * If it's greater than zero, each pizza is drawn by tiles of this size at the same time.
+     */
+    @Setter private int tileSize = 0;
+
+    /**
+     * The seed of the first pizza's generator, the seed of each pizza is taken from it in the order
+     * of the code, so the images are the same whatever the number of workers.
+     * It's also the seed of the base layers of every pizza, so the pizzas of the same size share them.
+     */
+    @Setter private long seed;
+
     public DrawManager(@NotNull SemanticAnalyzer.Intermediate intermediate, String imgExtension) {
         this.sourcePath = intermediate.program.getPath().getParent();
         this.instructions = intermediate.instructions;
         this.imgExtension = imgExtension;
+        this.seed = intermediate.program.getSeed();
     }
 
     /**
-     * Checks each instruction and does something according to each instruction.
+     * Lowers the instructions to a render plan, and draws and exports each page of the plan.
+     * With more than one worker, the sprites of the plan are scaled by the same workers that draw
+     * the pages.
      */
     public void draw() {
-        instructions.forEach(i -> {
-            if (i instanceof Make make) {
-                checkMake(make);
-            }
-        });
+        if (workers <= 1) {
+            draw(RenderPlan.lower(instructions, seed, Runnable::run), null);
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try {
+            draw(RenderPlan.lower(instructions, seed, executor), executor);
+        } finally {
+            executor.shutdownNow();
+        }
     }
 
     /**
-     * Calls to method draw in Drawable interface, and does the exporting.
-     *
-     * @param drawable the drawable object.
-     * @param <D>      the type of assigment.
+     * Draws each page of the plan with the backend of the tile size, and exports it.
+     * @param plan the plan made from the instructions.
      */
-    private <D extends Assignment & Drawable> void draw(@NotNull D drawable) {
-        drawable.draw();
-        export(drawable.getCanvas(), drawable.getImageName());
+    public void draw(@NotNull RenderPlan plan) {
+        if (workers <= 1 || plan.pages().size() <= 1) {
+            draw(plan, null);
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(workers, plan.pages().size()));
+        try {
+            draw(plan, executor);
+        } finally {
+            executor.shutdownNow();
+        }
     }
 
-    private void checkMake(@NotNull Make make) {
-        if (make.getInstruction() instanceof Pizza pizza) {
-            draw(pizza);
+    /**
+     * @param executor the workers that draw the pages, or null to draw them in this thread.
+     */
+    private void draw(@NotNull RenderPlan plan, @Nullable ExecutorService executor) {
+        RenderBackend backend = RenderBackend.of(tileSize, plan.images());
+        List<RenderPlan.Page> pages = lastOfEachName(plan.pages());
+
+        if (executor == null) {
+            pages.forEach(page -> report(draw(page, backend)));
+            return;
         }
+
+        List<Future<Exported>> drawn = new ArrayList<>();
+        pages.forEach(page -> drawn.add(executor.submit(() -> draw(page, backend))));
+
+        for (Future<Exported> exported : drawn) report(await(exported));
+    }
+
+    /**
+     * The pages saved with the same name are saved in the same file, so only the last one of the
+     * code is drawn, as if each one replaced the file of the previous one; otherwise, they would be
+     * written at the same time by different workers.
+     */
+    private static @NotNull List<RenderPlan.Page> lastOfEachName(@NotNull List<RenderPlan.Page> pages) {
+        Map<String, Integer> lastPages = new HashMap<>();
+        for (int i = 0; i < pages.size(); i++) lastPages.put(pages.get(i).name(), i);
+
+        List<RenderPlan.Page> last = new ArrayList<>(lastPages.size());
+        for (int i = 0; i < pages.size(); i++)
+            if (lastPages.get(pages.get(i).name()) == i) last.add(pages.get(i));
+        return last;
+    }
+
+    private @NotNull Exported draw(@NotNull RenderPlan.Page page, @NotNull RenderBackend backend) {
+        return export(page.render(backend), page.name());
+    }
+
+    private static @NotNull Exported await(@NotNull Future<Exported> exported) {
+        try {
+            return exported.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            if (e.getCause() instanceof Error cause) throw cause;
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("The drawing was interrupted", e);
+        }
+    }
+
+    /**
+     * The result of an export, the error is null if the image was saved.
+     */
+    protected record Exported(@NotNull File file, @Nullable IOException error) {
     }
 
-    protected void export(@NotNull BufferedImage image, String saveAS) {
+    protected void report(@NotNull Exported exported) {
+        if (exported.error() == null)
+            System.out.println("Canvas exported as" +
+                    ": " + exported.file().getAbsolutePath());
+        else System.err.println("Could not save the canvas: " + exported.error().getMessage());
+    }
+
+    protected @NotNull Exported export(@NotNull BufferedImage image, String saveAS) {
         Path pathName = Paths.get(saveAS + "." + imgExtension);
         File imgFile = new File(sourcePath.resolve(pathName).toUri());
 
         try {
             ImageIO.write(image, imgExtension, imgFile);
-            System.out.println("Canvas exported as" +
-                    ": " + imgFile.getAbsolutePath());
+            return new Exported(imgFile, null);
         } catch (IOException e) {
-            System.err.println("Could not save the canvas: " + e.getMessage());
+            return new Exported(imgFile, e);
         }
     }
 }
@@ -8,6 +8,13 @@ import java.util.Set;
 public enum ExParams {
     show(Set.of("-s", "--show-mode")),
     image_extension(Set.of("-i", "--image-extension")),
+    pipeline(Set.of("-p", "--pipeline")),
+    flat_ast(Set.of("-f", "--flat-ast")),
+    max_pixels(Set.of("-m", "--max-pixels")),
+    workers(Set.of("-w", "--workers")),
+    tile_size(Set.of("-t", "--tile-size")),
+    seed(Set.of("-r", "--seed")),
+    bilinear(Set.of("-b", "--bilinear")),
     undefined(Set.of());
 
     final Set<String> symbols;
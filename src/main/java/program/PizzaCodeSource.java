@@ -1,22 +1,34 @@
 package program;
 
 import compiler.lexical.LexicalAnalyzer;
-import compiler.lexical.Token;
+import compiler.lexical.TokenBuffer;
+import compiler.lexical.TokenPipeline;
+import compiler.lexical.TokenStream;
 import compiler.parser.ASTNode;
+import compiler.parser.FlatAST;
 import compiler.parser.Parser;
+import compiler.parser.SyntaxNode;
 import compiler.semantic.InvalidPathException;
 import compiler.semantic.SemanticAnalyzer;
 import lombok.Getter;
+import lombok.Setter;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.*;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Getter
 public class PizzaCodeSource {
@@ -25,11 +37,49 @@ public class PizzaCodeSource {
     private final String root;
     private final BufferedReader buffer;
 
+    /**
+     * If the code is stored in a file at its path, then it can be memory-mapped instead of being
+     * read through its buffer.
+     */
+    private final boolean mappable;
+
     private static final Path programResourceFolder = Paths.get("ingredients");
     private static final Path relativeResourceFolder = Paths.get("resources");
 
+    /**
+     * Size of each chunk read from the buffer when the code cannot be memory-mapped.
+     */
+    private static final int CHUNK_SIZE = 8192;
+
     private final boolean showProcess;
 
+    /**
+     * If the lexical analysis runs in its own thread while the code is parsed.
+     */
+    @Setter
+    private boolean pipelined = false;
+
+    /**
+     * If the syntax tree is kept as a FlatAST after the parsing, this source's includes are
+     * compiled the same way.
+     */
+    @Setter
+    private boolean flatAST = false;
+
+    /**
+     * The locations of the sources being included down to this one, starting at the first
+     * included source, used to find the include cycles.
+     */
+    @Setter
+    private @NotNull List<String> includeChain = List.of();
+
+    /**
+     * The seed of the pizzas drawn from this source, the same source and seed always draw the same
+     * images; if it's not set, a random seed is used.
+     */
+    @Setter
+    private long seed = ThreadLocalRandom.current().nextLong();
+
     public PizzaCodeSource(@NotNull File file, boolean showProcess) {
         try {
             this.buffer = new BufferedReader(new FileReader(file));
@@ -43,6 +93,7 @@ public class PizzaCodeSource {
         System.out.println(path);
         this.name = path.getFileName().toString();
         this.root = path.getParent().toString();
+        this.mappable = true;
         this.showProcess = showProcess;
 
         checkExtension();
@@ -54,6 +105,7 @@ public class PizzaCodeSource {
         this.path = path.toAbsolutePath();
         this.name = path.getFileName().toString();
         this.root = null;
+        this.mappable = false;
         this.showProcess = showProcess;
 
         checkExtension();
@@ -72,6 +124,7 @@ public class PizzaCodeSource {
             this.path = Paths.get(temporaryFile.getPath());
             this.name = path.getFileName().toString();
             this.root = (path.getParent() == null ? Paths.get(".") : path.getParent()).toString();
+            this.mappable = true;
             this.showProcess = false;
 
             checkExtension();
@@ -83,9 +136,11 @@ public class PizzaCodeSource {
     /**
      * This method does the compilation of code in its object.
      * When the method compiles first does the lexical analyzer to get tokens (named tokenization
-     * of code).
-     * Then does the semantic analysis (named parsing too) when doing this, get the sourceCodePath's
-     * AST node (abstract syntax tree) containing the correct struct of this sourceCodePath.
+     * of code), the tokens are read by the parser while they are found, so both analyses are done
+     * at the same time.
+     * Then does the syntax analysis (named parsing too) when doing this, get the sourceCodePath's
+     * AST node (abstract syntax tree) containing the correct struct of this sourceCodePath, and
+     * its arithmetic operations are replaced by their results.
      * Finally, does the semantic analysis, checking the correct use of each variable or instruction.
      *
      * @return a list with the instructions to be executed.
@@ -93,17 +148,15 @@ public class PizzaCodeSource {
     public SemanticAnalyzer.Intermediate compile() {
         try {
             LexicalAnalyzer lexicalAnalyzer = new LexicalAnalyzer(this);
-            List<Token> tokens = lexicalAnalyzer.analyze();
+            ASTNode tree;
 
-            if (showProcess) {
-                if (!tokens.isEmpty())
-                    System.out.printf("\n\n%s\n----TOKENS----%n", path);
-                tokens.forEach(System.out::println);
+            try (TokenStream tokens = tokenize(lexicalAnalyzer)) {
+                Parser parser = new Parser(this, tokens);
+                tree = parser.parse();
             }
 
-            Parser parser = new Parser(this, tokens);
-            ASTNode programNode = parser.parse();
-
+            SemanticAnalyzer.fold(tree);
+            SyntaxNode programNode = flatAST ? FlatAST.of(tree).root() : tree;
 
             if (showProcess) {
                 System.out.printf("\n\n%s\n----PROGRAM ASTNode----%n", path);
@@ -126,6 +179,66 @@ public class PizzaCodeSource {
         }
     }
 
+    /**
+     * Chooses how the tokens are read by the parser. In show mode, all the tokens are found
+     * first to be shown; big codes are also analyzed first, by parts at the same time; otherwise,
+     * they are found while they are read, in the same thread or in its own thread if this source
+     * is pipelined.
+     *
+     * @param lexicalAnalyzer the analyzer of this source.
+     * @return the stream of tokens to be parsed.
+     */
+    private @NotNull TokenStream tokenize(@NotNull LexicalAnalyzer lexicalAnalyzer) {
+        if (showProcess) {
+            TokenBuffer tokens = lexicalAnalyzer.analyze();
+
+            if (!tokens.isEmpty())
+                System.out.printf("\n\n%s\n----TOKENS----%n", path);
+            tokens.forEach(System.out::println);
+
+            return tokens.stream();
+        }
+
+        if (pipelined) return TokenPipeline.start(lexicalAnalyzer);
+        if (lexicalAnalyzer.isParallelizable()) return lexicalAnalyzer.analyze().stream();
+        return lexicalAnalyzer.stream();
+    }
+
+    /**
+     * Reads all the code of this source and closes its buffer.
+     * If the code is in a file, the file is memory-mapped and decoded directly from the mapping,
+     * otherwise, the buffer is read in chunks; both ways avoid splitting the code in lines.
+     *
+     * @return a buffer with the characters of the code, ready to be read from its start.
+     * @throws IOException if the code could not be read.
+     */
+    public @NotNull CharBuffer read() throws IOException {
+        try (BufferedReader reader = buffer) {
+            if (mappable) return map();
+
+            CharBuffer code = CharBuffer.allocate(CHUNK_SIZE);
+            while (reader.read(code) != -1) {
+                if (code.hasRemaining()) continue;
+
+                CharBuffer bigger = CharBuffer.allocate(code.capacity() * 2);
+                bigger.put(code.flip());
+                code = bigger;
+            }
+            return code.flip();
+        }
+    }
+
+    private @NotNull CharBuffer map() throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            return Charset.defaultCharset().newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                .decode(bytes);
+        }
+    }
+
     /**
      * Checks if the path provided is absolute or not, that means, the path could be a root
      * path (for example, c:\\users\\...) or relative to the sourceCodePath (for example, a resource named
@@ -164,6 +277,24 @@ public class PizzaCodeSource {
         return new FileInputStream(file);
     }
 
+    /**
+     * Finds a resource as {@link #getResource(Path)} does, without opening it.
+     *
+     * @return the URL of the compiler resource, or the URL of the file's real path.
+     */
+    public @NotNull URL locateResource(@NotNull Path path) throws IOException {
+        URL url = PizzaCodeSource.class.getClassLoader()
+            .getResource(path.toString().replace('\\', '/'));
+
+        if (url != null)
+            return url;
+
+        File file = path.toFile();
+        if (!file.exists())
+            throw new FileNotFoundException("No se encontró el recurso " + path);
+        return file.toPath().toRealPath().toUri().toURL();
+    }
+
     /**
      * The method checks if the path is a compiler resource reference (this means the resource that
      * the code is trying to access is in the resource of this sourceCodePath - the compiler sourceCodePath -).
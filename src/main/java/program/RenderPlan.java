@@ -0,0 +1,108 @@
+package program;
+
+import language.Instruction;
+import language.Make;
+import language.types.Ingredient;
+import language.types.Pizza;
+import language.util.DrawOp;
+import language.util.RenderBackend;
+import language.util.SpriteAtlas;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.awt.image.BufferedImage;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * The draws of a program lowered to primitive operations, one page for each pizza in the order of
+ * the code. The plan doesn't change once it's made, so it can be kept, checked and replayed by any
+ * {@link RenderBackend}, and its pages at the same time.
+ * @param pages  the images to draw.
+ * @param images the images of the blits of the pages, by their keys: the atlas of the sprites and
+ *               the base layers of the pizzas.
+ */
+public record RenderPlan(List<Page> pages, Map<String, BufferedImage> images) {
+    public RenderPlan {
+        pages = List.copyOf(pages);
+        images = Map.copyOf(images);
+    }
+
+    /**
+     * An image of the plan.
+     * @param name the name of its image, without extension.
+     * @param ops  the operations in the order they are drawn.
+     */
+    public record Page(String name, int width, int height, List<DrawOp> ops) {
+        public Page {
+            ops = List.copyOf(ops);
+        }
+
+        /**
+         * @return a new image with the operations of the page drawn by the backend.
+         */
+        public @NotNull BufferedImage render(@NotNull RenderBackend backend) {
+            BufferedImage canvas = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            backend.render(canvas, ops);
+            return canvas;
+        }
+    }
+
+    /**
+     * Lowers the pizzas made by the instructions.
+     * The sprites of all the ingredients used by the pizzas are packed first in one atlas, shared
+     * by all the pizzas; the seed of each pizza is taken from the seed given in the order of the
+     * code, and the seed given is the seed of the base layers of every pizza.
+     * The pizzas are not changed, so the same instructions and seed always give the same plan; the
+     * pizzas without image name are named by their order in the plan.
+     * @param instructions the instructions of the program.
+     * @param seed         the seed of the plan, the same seed always gives the same plan.
+     * @param executor     scales the sprites of the atlas at the same time.
+     * @return the plan with a page for each pizza made.
+     */
+    public static @NotNull RenderPlan lower(@NotNull Collection<Instruction> instructions, long seed,
+                                           @NotNull Executor executor) {
+        List<Pizza> pizzas = new ArrayList<>();
+        instructions.forEach(i -> {
+            if (i instanceof Make make && make.getInstruction() instanceof Pizza pizza) pizzas.add(pizza);
+        });
+
+        SpriteAtlas atlas = packSprites(pizzas, executor);
+        SplittableRandom seeds = new SplittableRandom(seed);
+        List<Page> pages = new ArrayList<>(pizzas.size());
+        Map<String, BufferedImage> images = new HashMap<>();
+        int unnamed = 0;
+        for (Pizza pizza : pizzas) {
+            String name = pizza.getImageName() == null ? "pizza" + unnamed++ : pizza.getImageName();
+            int diameter = pizza.getSize().getCircle().diameter;
+
+            pages.add(new Page(name, diameter, diameter, pizza.lower(atlas, seeds.nextLong(), seed)));
+            images.putAll(pizza.images(atlas, seed));
+        }
+        return new RenderPlan(pages, images);
+    }
+
+    /**
+     * The sprites are only kept by the atlas, so they are scaled without the sprite cache, each one
+     * by the executor.
+     */
+    private static @Nullable SpriteAtlas packSprites(@NotNull List<Pizza> pizzas, @NotNull Executor executor) {
+        Map<String, Ingredient> used = new LinkedHashMap<>();
+        pizzas.forEach(pizza -> pizza.usedIngredients().forEach(ing -> used.putIfAbsent(ing.getSpriteKey(), ing)));
+
+        Map<String, CompletableFuture<BufferedImage>> scaling = new LinkedHashMap<>();
+        used.forEach((key, ing) -> scaling.put(key, CompletableFuture.supplyAsync(ing::scaleSprite, executor)));
+
+        Map<String, BufferedImage> sprites = new LinkedHashMap<>();
+        try {
+            scaling.forEach((key, sprite) -> sprites.put(key, sprite.join()));
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            if (e.getCause() instanceof Error cause) throw cause;
+            throw e;
+        }
+        return SpriteAtlas.pack(sprites);
+    }
+}
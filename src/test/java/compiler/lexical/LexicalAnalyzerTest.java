@@ -0,0 +1,60 @@
+package compiler.lexical;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Casos del análisis léxico en paralelo de códigos grandes.
+ */
+class LexicalAnalyzerTest {
+
+    /**
+     * El análisis por partes debe encontrar los mismos tokens, en las mismas posiciones, que el
+     * análisis de todo el código en orden; incluso con textos y comentarios que terminan en ';'.
+     */
+    @Test
+    void parallelAnalysisIsEqualToSequential() {
+        String block = """
+                define ingredient ING ('ingredients/olive.png') resize 39;\r
+                define specialty SP {
+                    ING(7 + 2 * 3); // comentario;
+                    HAM(4);
+                }
+                define ingredient TXT ('texto sin cerrar;
+                ' ; text 'otro;
+                make big pizza of SP;\r""";
+        String code = block.repeat((1 << 21) / block.length());
+
+        TokenBuffer tokens = new LexicalAnalyzer(code, null).analyzeInParallel();
+
+        int index = 0;
+        try (TokenStream expected = new LexicalAnalyzer(code, null).stream()) {
+            while (expected.peek() != null) {
+                expected.next();
+                assertEquals(expected.type(), tokens.type(index));
+                assertEquals(expected.text(), tokens.text(index));
+                assertEquals(expected.position().toString(), tokens.position(index).toString());
+                index++;
+            }
+        }
+        assertEquals(index, tokens.size());
+    }
+
+    /**
+     * El error de un caracter no reconocido se reporta en su posición, aunque esté en una parte
+     * analizada en paralelo.
+     */
+    @Test
+    void parallelAnalysisReportsFirstError() {
+        String block = "make big pizza of MEXICANA;\n";
+        String code = block.repeat((1 << 21) / block.length()) + "make $;\n";
+
+        LexicalAnalyzer analyzer = new LexicalAnalyzer(code, null);
+        assertThrows(IllegalArgumentException.class, analyzer::analyzeInParallel);
+
+        var error = assertThrows(IllegalArgumentException.class, analyzer::analyze);
+        assertTrue(error.getMessage().contains("'$'"));
+        assertTrue(error.getMessage().contains("row=%s;".formatted((1 << 21) / block.length() + 1)));
+    }
+}
@@ -0,0 +1,73 @@
+package compiler.lexical;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Casos del análisis léxico hecho en su propio hilo mientras se leen los tokens.
+ */
+class TokenPipelineTest {
+
+    /**
+     * El hilo del análisis debe entregar los mismos tokens, en las mismas posiciones, que el
+     * análisis en orden; aunque haya muchos más tokens de los que caben en el anillo.
+     */
+    @Test
+    void pipelineIsEqualToSequential() {
+        String block = """
+                define ingredient ING ('ingredients/olive.png') resize 39;
+                define specialty SP {
+                    ING(7 + 2 * 3); // comentario;
+                }
+                make big pizza of SP;
+                """;
+        String code = block.repeat(2_000);
+
+        int index = 0;
+        try (TokenStream expected = new LexicalAnalyzer(code, null).stream();
+             TokenStream tokens = TokenPipeline.start(new LexicalAnalyzer(code, null))) {
+            while (expected.peek() != null) {
+                assertEquals(expected.peek(), tokens.peek());
+                expected.next();
+                tokens.next();
+                assertEquals(expected.type(), tokens.type());
+                assertEquals(expected.text(), tokens.text());
+                assertEquals(expected.position().toString(), tokens.position().toString());
+                index++;
+            }
+            assertNull(tokens.peek());
+        }
+        assertTrue(index > 10 * 4096, "the ring must be filled more than once");
+    }
+
+    /**
+     * El error de un caracter no reconocido, encontrado en el hilo del análisis, se lanza al leer
+     * el token donde está, después de leer todos los tokens anteriores.
+     */
+    @Test
+    void pipelineReportsAnalyzerError() {
+        String block = "make big pizza of MEXICANA;\n";
+        int rows = 5_000;
+        String code = block.repeat(rows) + "make $;\n";
+
+        int read = 0;
+        try (TokenStream tokens = TokenPipeline.start(new LexicalAnalyzer(code, null))) {
+            for (int i = 0; i < rows * 6; i++) {
+                tokens.next();
+                read++;
+            }
+
+            var error = assertTimeoutPreemptively(Duration.ofSeconds(10), () -> assertThrows(
+                    IllegalArgumentException.class,
+                    () -> {
+                        while (true) tokens.next();
+                    }));
+            assertTrue(error.getMessage().contains("'$'"));
+            assertTrue(error.getMessage().contains("row=%s;".formatted(rows + 1)));
+        }
+        assertEquals(rows * 6, read);
+    }
+}
@@ -0,0 +1,91 @@
+package compiler.parser;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Casos de la búsqueda de nodos por tipo usando el índice del árbol.
+ */
+class ASTIndexTest {
+
+    /**
+     * Buscar cualquier tipo desde cualquier nodo debe encontrar los mismos nodos, en el mismo
+     * orden, que recorrer el árbol como lo hacía el método find original; en el árbol del parser
+     * y en el árbol compacto.
+     */
+    @Test
+    void findIsEqualToRecursiveWalk() throws IOException {
+        String includes = """
+                include 'basicmenu';
+                include 'menu/extra';
+                define ingredient CARROT ('ingredients/olive.png') resize 16;
+                define specialty VEGGIE {
+                    CARROT(1 + 2 - 3 * 4 / 5);
+                    OLIVE(7);
+                }
+                make big pizza of MEXICANA and VEGGIE add HAM(2 * 3) and OLIVE(1) save as 'veggie' 'x';
+                make personal pizza add CARROT(4);
+                """;
+
+        for (String code : List.of(FlatASTTest.basicMenu(), includes)) {
+            ASTNode tree = FlatASTTest.parse(code);
+            FlatAST flat = FlatAST.of(tree);
+
+            //the flat nodes are numbered in preorder, as the tree is walked here
+            List<ASTNode> nodes = preorder(tree);
+            assertEquals(nodes.size(), flat.size());
+
+            for (int i = 0; i < nodes.size(); i++) {
+                ASTNode node = nodes.get(i);
+                FlatAST.Node view = flat.node(i);
+
+                for (Expressions type : Expressions.values()) {
+                    List<ASTNode> expected = recursiveFind(node, type);
+                    List<ASTNode> found = node.find(type);
+                    List<FlatAST.Node> foundViews = view.find(type);
+
+                    assertEquals(expected.size(), found.size(), "%s from %s".formatted(type, node.getPosition()));
+                    assertEquals(expected.size(), foundViews.size(), "%s from %s".formatted(type, node.getPosition()));
+                    for (int j = 0; j < expected.size(); j++) {
+                        assertSame(expected.get(j), found.get(j));
+                        assertSame(expected.get(j), nodes.get(foundViews.get(j).index()));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The find method before the index: the children of the type, otherwise, the nodes found
+     * from each child.
+     */
+    private static List<ASTNode> recursiveFind(ASTNode node, Expressions type) {
+        List<ASTNode> filter = node.children().stream()
+                .filter(c -> c.getType() == type)
+                .toList();
+
+        if (!filter.isEmpty()) return filter;
+        return node.children().stream()
+                .flatMap(c -> recursiveFind(c, type).stream())
+                .toList();
+    }
+
+    private static List<ASTNode> preorder(ASTNode root) {
+        List<ASTNode> nodes = new ArrayList<>();
+        Deque<ASTNode> pending = new ArrayDeque<>();
+        pending.push(root);
+
+        while (!pending.isEmpty()) {
+            ASTNode node = pending.pop();
+            nodes.add(node);
+
+            List<ASTNode> children = node.children();
+            for (int i = children.size() - 1; i >= 0; i--) pending.push(children.get(i));
+        }
+        return nodes;
+    }
+}
@@ -0,0 +1,82 @@
+package compiler.parser;
+
+import compiler.lexical.LexicalAnalyzer;
+import org.junit.jupiter.api.Test;
+import program.PizzaCodeSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Casos del árbol sintáctico compacto, cada nodo debe ser igual al nodo del árbol del parser.
+ */
+class FlatASTTest {
+
+    /**
+     * Cada nodo del árbol compacto debe tener el mismo tipo, valor, posición, padre e hijos que el
+     * nodo del árbol del parser del menú básico.
+     */
+    @Test
+    void nodesAreEqualToASTNodes() throws IOException {
+        ASTNode tree = parse(basicMenu());
+        FlatAST flat = FlatAST.of(tree);
+
+        assertEquals(tree.toString(), flat.toString());
+
+        int count = 0;
+        Deque<ASTNode> pendingNodes = new ArrayDeque<>();
+        Deque<FlatAST.Node> pendingViews = new ArrayDeque<>();
+        pendingNodes.push(tree);
+        pendingViews.push(flat.root());
+
+        while (!pendingNodes.isEmpty()) {
+            ASTNode node = pendingNodes.pop();
+            FlatAST.Node view = pendingViews.pop();
+            count++;
+
+            assertEquals(node.getType(), view.getType());
+            assertEquals(node.getValue(), view.getValue());
+            assertEquals(node.getPosition().toString(), view.getPosition().toString());
+            assertEquals(node.toString(), view.toString());
+            assertEquals(flat.root(), view.root());
+
+            if (node.getFather() == null) assertNull(view.getFather());
+            else assertEquals(node.getFather().toString(), view.getFather().toString());
+
+            List<ASTNode> children = node.children();
+            List<FlatAST.Node> views = view.children();
+            assertEquals(children.size(), views.size());
+
+            if (children.isEmpty()) assertThrows(ASTNode.EmptyASTException.class, view::left);
+            else assertEquals(node.left().toString(), view.left().toString());
+
+            if (children.size() < 2) assertThrows(ASTNode.EmptyASTException.class, view::right);
+            else assertEquals(node.right().toString(), view.right().toString());
+
+            for (int i = 0; i < children.size(); i++) {
+                assertEquals(view, views.get(i).getFather());
+                pendingNodes.push(children.get(i));
+                pendingViews.push(views.get(i));
+            }
+        }
+        assertEquals(flat.size(), count);
+    }
+
+    static String basicMenu() throws IOException {
+        try (InputStream input = FlatASTTest.class.getClassLoader().getResourceAsStream("basicmenu.pf")) {
+            assertNotNull(input);
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    static ASTNode parse(String code) {
+        PizzaCodeSource program = new PizzaCodeSource(code);
+        return new Parser(program, new LexicalAnalyzer(code, program.getPath()).analyze().stream()).parse();
+    }
+}
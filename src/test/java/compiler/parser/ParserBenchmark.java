@@ -0,0 +1,65 @@
+package compiler.parser;
+
+import compiler.lexical.LexicalAnalyzer;
+import compiler.lexical.TokenBuffer;
+import program.PizzaCodeSource;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Mide cuántos tokens por segundo analiza el parser, sin contar el análisis léxico, y cuántos
+ * bytes reserva en memoria por token.
+ * No es una prueba, se ejecuta con su método main:
+ * {@code java -cp target/classes:target/test-classes compiler.parser.ParserBenchmark [definiciones]}
+ */
+public class ParserBenchmark {
+    private static final int WARMUP = 5;
+    private static final int ROUNDS = 10;
+
+    public static void main(String[] args) {
+        int definitions = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        String code = catalogue(definitions);
+
+        PizzaCodeSource program = new PizzaCodeSource("make big pizza of MEXICANA;");
+        TokenBuffer tokens = new LexicalAnalyzer(code, program.getPath()).analyze();
+
+        for (int i = 0; i < WARMUP; i++) new Parser(program, tokens.stream()).parse();
+
+        var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocated = threads.getCurrentThreadAllocatedBytes();
+
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            new Parser(program, tokens.stream()).parse();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        allocated = threads.getCurrentThreadAllocatedBytes() - allocated;
+
+        System.out.printf("%s tokens, best of %s rounds: %.1f ms, %.1f millions of tokens per second, %.1f bytes per token%n",
+                tokens.size(), ROUNDS, best / 1e6, tokens.size() * 1e3 / best, (double) allocated / ROUNDS / tokens.size());
+    }
+
+    /**
+     * @param definitions the number of ingredients defined.
+     * @return a catalogue with ingredients, specialties and pizzas made with them.
+     */
+    private static String catalogue(int definitions) {
+        StringBuilder code = new StringBuilder();
+
+        for (int i = 0; i < definitions; i++) {
+            code.append("define ingredient ING_%s ('ingredients/olive.png') resize %s;\n".formatted(i, 20 + i % 50));
+
+            if (i % 3 == 0) code.append("""
+                    define specialty SP_%s {
+                        ING_%s(%s + 2 * 3 - 8 / 4);
+                        ING_%s(4);
+                    }
+                    """.formatted(i, i, i % 10, i / 2));
+
+            if (i % 5 == 0) code.append("make %s pizza of SP_%s and SP_%s add ING_%s(2 * 2) and ING_%s(1) save as 'pizza_%s';\n"
+                    .formatted(i % 2 == 0 ? "big" : "medium", i / 3 * 3, i / 6 * 3, i, i / 2, i));
+        }
+        return code.toString();
+    }
+}
@@ -0,0 +1,67 @@
+package language.types;
+
+import compiler.semantic.SemanticAnalyzer;
+import org.junit.jupiter.api.Test;
+import program.PizzaCodeSource;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Casos de la decodificación de las imágenes de los ingredientes.
+ */
+class IngredientTest {
+
+    private static Ingredient define(int side, int resize) throws IOException {
+        File image = File.createTempFile("ingredient", ".png");
+        ImageIO.write(new BufferedImage(side, side, BufferedImage.TYPE_INT_ARGB), "png", image);
+
+        SemanticAnalyzer.Intermediate intermediate = new PizzaCodeSource("""
+                define ingredient IMAGE('%s') resize %s;
+                """.formatted(image.getAbsolutePath().replace('\\', '/'), resize)).compile();
+
+        Ingredient ingredient = intermediate.symbols.getIngredient("image");
+        assertNotNull(ingredient);
+        return ingredient;
+    }
+
+    /**
+     * Una imagen con más píxeles que el máximo se decodifica con menos píxeles que el máximo, y su
+     * sprite tiene el tamaño del ingrediente.
+     */
+    @Test
+    void imageGreaterThanMaxPixelsIsSubsampled() throws IOException {
+        long maxPixels = Ingredient.getMaxPixels();
+        try {
+            Ingredient.setMaxPixels(1_000);
+            Ingredient ingredient = define(600, 30);
+
+            BufferedImage canvas = ingredient.getCanvas();
+            assertTrue((long) canvas.getWidth() * canvas.getHeight() <= 1_000);
+
+            BufferedImage sprite = ingredient.getSprite();
+            assertEquals(30, sprite.getWidth());
+            assertEquals(30, sprite.getHeight());
+        } finally {
+            Ingredient.setMaxPixels(maxPixels);
+        }
+    }
+
+    /**
+     * Una imagen con menos píxeles que el máximo, y no mucho más grande que su ingrediente, se
+     * decodifica completa.
+     */
+    @Test
+    void imageLowerThanMaxPixelsIsNotSubsampled() throws IOException {
+        Ingredient ingredient = define(50, 40);
+
+        BufferedImage canvas = ingredient.getCanvas();
+        assertEquals(50, canvas.getWidth());
+        assertEquals(50, canvas.getHeight());
+        assertEquals(40, ingredient.getSprite().getWidth());
+    }
+}
@@ -0,0 +1,45 @@
+package language.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Casos del empaquetado de imágenes en un atlas.
+ */
+class SpriteAtlasTest {
+
+    /**
+     * Cada imagen debe quedar en su propio rectángulo, sin encimarse, y con los mismos píxeles.
+     */
+    @Test
+    void spritesArePackedWithoutOverlapping() {
+        Map<String, BufferedImage> sprites = new LinkedHashMap<>();
+        for (int i = 1; i <= 6; i++) {
+            BufferedImage sprite = new BufferedImage(10 * i, 7 * i, BufferedImage.TYPE_INT_ARGB_PRE);
+            sprite.setRGB(0, 0, 0xFF000000 | i);
+            sprites.put("sprite" + i, sprite);
+        }
+
+        SpriteAtlas atlas = SpriteAtlas.pack(sprites);
+
+        assertNotNull(atlas);
+        assertEquals(sprites.size(), atlas.size());
+        sprites.forEach((name, sprite) -> {
+            Rectangle region = atlas.region(name);
+            assertNotNull(region);
+            assertEquals(sprite.getWidth(), region.width);
+            assertEquals(sprite.getHeight(), region.height);
+            assertEquals(sprite.getRGB(0, 0), atlas.getImage().getRGB(region.x, region.y));
+
+            sprites.keySet().stream()
+                    .filter(other -> !other.equals(name))
+                    .forEach(other -> assertFalse(region.intersects(atlas.region(other))));
+        });
+    }
+}
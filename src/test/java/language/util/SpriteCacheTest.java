@@ -0,0 +1,146 @@
+package language.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Casos de la caché de imágenes decodificadas.
+ */
+class SpriteCacheTest {
+
+    private static BufferedImage sprite() {
+        return new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB);
+    }
+
+    /**
+     * Una imagen guardada no se decodifica otra vez, y al pasar la capacidad se quita la imagen
+     * usada hace más tiempo.
+     */
+    @Test
+    void leastRecentlyUsedIsEvicted() {
+        SpriteCache cache = new SpriteCache(2 * 10 * 10 * 4);
+
+        BufferedImage a = cache.get("a", SpriteCacheTest::sprite);
+        cache.get("b", SpriteCacheTest::sprite);
+        assertSame(a, cache.get("a", () -> fail("'a' is kept")));
+
+        cache.get("c", SpriteCacheTest::sprite);
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getHits());
+        assertEquals(3, cache.getMisses());
+        assertEquals(1, cache.getEvictions());
+        assertSame(a, cache.get("a", () -> fail("'a' is kept")));
+        assertNotSame(a, cache.get("b", SpriteCacheTest::sprite));
+    }
+
+    /**
+     * Una imagen pedida por dos hilos al mismo tiempo se decodifica una vez, el hilo que espera a
+     * la otra decodificación cuenta como acierto.
+     */
+    @Test
+    void concurrentGetDecodesOnce() throws Exception {
+        SpriteCache cache = new SpriteCache(SpriteCache.DEFAULT_CAPACITY);
+        AtomicInteger decoded = new AtomicInteger();
+        CountDownLatch decoding = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+
+        Supplier<BufferedImage> decoder = () -> {
+            decoded.incrementAndGet();
+            decoding.countDown();
+            try {
+                finish.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return sprite();
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<BufferedImage> first = executor.submit(() -> cache.get("a", decoder));
+            assertTrue(decoding.await(10, TimeUnit.SECONDS));
+            Future<BufferedImage> second = executor.submit(() -> cache.get("a", decoder));
+
+            //the second thread is waiting once its hit is counted
+            while (cache.getHits() == 0) Thread.onSpinWait();
+            finish.countDown();
+
+            assertSame(first.get(10, TimeUnit.SECONDS), second.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, decoded.get());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getHits());
+    }
+
+    /**
+     * Una imagen más grande que toda la caché no se guarda.
+     */
+    @Test
+    void spriteGreaterThanCapacityIsNotKept() {
+        SpriteCache cache = new SpriteCache(10);
+
+        cache.get("a", SpriteCacheTest::sprite);
+
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getBytes());
+    }
+
+    /**
+     * Una imagen indexada se convierte a píxeles premultiplicados una vez, sin cambiar sus colores.
+     */
+    @Test
+    void indexedSpriteIsNormalized() {
+        BufferedImage indexed = new BufferedImage(4, 4, BufferedImage.TYPE_BYTE_INDEXED);
+        indexed.setRGB(1, 2, 0xFFFF0000);
+        long conversions = SpriteCache.getConversions();
+
+        BufferedImage normalized = SpriteCache.normalize(indexed);
+
+        assertEquals(BufferedImage.TYPE_INT_ARGB_PRE, normalized.getType());
+        assertEquals(indexed.getRGB(1, 2), normalized.getRGB(1, 2));
+        assertEquals(conversions + 1, SpriteCache.getConversions());
+        assertSame(normalized, SpriteCache.normalize(normalized));
+    }
+
+    /**
+     * Por defecto, una imagen escalada una vez y dibujada después debe dejar los mismos píxeles que
+     * dibujarla escalada en el lienzo, como se dibujaban los ingredientes antes.
+     */
+    @Test
+    void defaultScaleIsEqualToScaledDraw() {
+        Random random = new Random(3);
+        BufferedImage image = new BufferedImage(97, 61, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < image.getHeight(); y++)
+            for (int x = 0; x < image.getWidth(); x++)
+                image.setRGB(x, y, random.nextBoolean() ? 0 : random.nextInt() | 0xFF000000);
+
+        BufferedImage expected = new BufferedImage(80, 80, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = expected.createGraphics();
+        graphics.drawImage(image, 7, 9, 30, 22, null);
+        graphics.dispose();
+
+        BufferedImage drawn = new BufferedImage(80, 80, BufferedImage.TYPE_INT_ARGB);
+        graphics = drawn.createGraphics();
+        graphics.drawImage(SpriteCache.scale(image, 30, 22, false), 7, 9, null);
+        graphics.dispose();
+
+        for (int y = 0; y < 80; y++)
+            for (int x = 0; x < 80; x++)
+                assertEquals(expected.getRGB(x, y), drawn.getRGB(x, y), "pixel (%s, %s)".formatted(x, y));
+        assertNotEquals(
+                SpriteCache.scale(image, 30, 22, false).getRGB(15, 11),
+                SpriteCache.scale(image, 30, 22, true).getRGB(15, 11));
+    }
+}
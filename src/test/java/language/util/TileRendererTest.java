@@ -0,0 +1,55 @@
+package language.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Casos del dibujo de un lienzo por partes.
+ */
+class TileRendererTest {
+
+    /**
+     * Dibujar por partes debe dejar los mismos píxeles que dibujar todo el lienzo en orden, aun con
+     * imágenes y líneas encimadas que cruzan varias partes.
+     */
+    @Test
+    void tilesAreEqualToWholeCanvas() {
+        BufferedImage sprite = new BufferedImage(57, 57, BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D spriteGraphics = sprite.createGraphics();
+        spriteGraphics.setColor(new Color(200, 10, 10, 180));
+        spriteGraphics.fillRect(5, 5, 40, 50);
+        spriteGraphics.dispose();
+
+        Random random = new Random(7);
+        List<DrawOp> ops = new ArrayList<>();
+        ops.add(new DrawOp.SetColor(Color.ORANGE.getRGB()));
+        ops.add(new DrawOp.FillRect(20, 20, 260, 250));
+        for (int i = 0; i < 200; i++) {
+            if (i % 50 == 0) ops.add(new DrawOp.SetColor(random.nextInt()));
+            if (i % 70 == 0) ops.add(new DrawOp.SetStroke(random.nextInt(12)));
+            ops.add(new DrawOp.FillRect(random.nextInt(300), random.nextInt(300), 15, 9));
+            ops.add(new DrawOp.Line(random.nextInt(300), random.nextInt(300), random.nextInt(300), random.nextInt(300), 11));
+            ops.add(new DrawOp.Blit("sprite", random.nextInt(300) - 28, random.nextInt(300) - 28,
+                    new DrawOp.Bounds(0, 0, 57, 57)));
+        }
+        Map<String, BufferedImage> images = Map.of("sprite", sprite);
+
+        BufferedImage expected = new BufferedImage(300, 300, BufferedImage.TYPE_INT_ARGB);
+        new Java2DBackend(images).render(expected, ops);
+
+        BufferedImage tiled = new BufferedImage(300, 300, BufferedImage.TYPE_INT_ARGB);
+        new TileRenderer(64, images).render(tiled, ops);
+
+        for (int y = 0; y < 300; y++)
+            for (int x = 0; x < 300; x++)
+                assertEquals(expected.getRGB(x, y), tiled.getRGB(x, y), "pixel (%s, %s)".formatted(x, y));
+    }
+}
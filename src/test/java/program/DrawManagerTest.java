@@ -0,0 +1,54 @@
+package program;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Casos del dibujo y exportación de las pizzas.
+ */
+class DrawManagerTest {
+
+    private static final String CODE = """
+            include 'basicmenu';
+            make personal pizza of MEXICANA save as 'first';
+            make medium pizza add HAM(3) and OLIVE(2 * 4) save as 'twice';
+            make medium pizza of HAWAIANA add CHEETOS(5) save as 'second';
+            make personal pizza of HAWAIANA save as 'twice';
+            """;
+
+    private static void draw(Path folder, int workers) throws IOException {
+        Path source = folder.resolve("program.pf");
+        Files.writeString(source, CODE);
+
+        DrawManager drawer = new DrawManager(new PizzaCodeSource(source.toFile(), false).compile(), "png");
+        drawer.setWorkers(workers);
+        drawer.setSeed(42);
+        drawer.draw();
+    }
+
+    /**
+     * Dibujar con varios trabajadores debe guardar los mismos archivos que dibujar en orden,
+     * incluso si dos pizzas se guardan con el mismo nombre: se queda la última del código.
+     */
+    @Test
+    void workersSaveSameFilesAsSerial() throws IOException {
+        Path serial = Files.createTempDirectory("serial");
+        Path parallel = Files.createTempDirectory("parallel");
+
+        draw(serial, 1);
+        draw(parallel, 4);
+
+        for (String name : new String[]{"first.png", "second.png", "twice.png"}) {
+            assertTrue(Files.exists(serial.resolve(name)), name);
+            assertArrayEquals(Files.readAllBytes(serial.resolve(name)), Files.readAllBytes(parallel.resolve(name)), name);
+        }
+        //the last 'twice' is a personal pizza
+        assertEquals(300, ImageIO.read(parallel.resolve("twice.png").toFile()).getWidth());
+    }
+}
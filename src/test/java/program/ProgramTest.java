@@ -3,9 +3,18 @@ package program;
 import compiler.parser.ExpectedLexemeException;
 import compiler.parser.ExpressionNotInterpretedException;
 import compiler.semantic.*;
+import language.Make;
+import language.types.Specialty;
 import org.junit.jupiter.api.Test;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -88,6 +97,21 @@ class ProgramTest {
         assertThrows(ImageNotSquaredException.class, program::compile);
     }
 
+    /**
+     * Error por usar una imagén no cuadrada guardada en un archivo, basta con leer su encabezado.
+     */
+    @Test
+    void imageNotSquaredFile() throws IOException {
+        File image = File.createTempFile("carrot", ".png");
+        ImageIO.write(new BufferedImage(30, 20, BufferedImage.TYPE_INT_ARGB), "png", image);
+
+        PizzaCodeSource program = new PizzaCodeSource("""
+                define ingredient CARROT('%s');
+                """.formatted(image.getAbsolutePath().replace('\\', '/')));
+
+        assertThrows(ImageNotSquaredException.class, program::compile);
+    }
+
     /**
      * Error por usar una dirección invalida a una imagén.
      */
@@ -138,6 +162,208 @@ class ProgramTest {
         assertThrows(IllegalDefinitionException.class, program::compile);
     }
 
+    /**
+     * Error por una cantidad de ingredientes igual a cero, las restas se hacen de izquierda a
+     * derecha.
+     */
+    @Test
+    void leftAssociativeQuantity() {
+        PizzaCodeSource program = new PizzaCodeSource("""
+                include 'basicmenu';
+                make big pizza add PEPPERONI(10 - 5 - 5);
+                """);
+
+        assertThrows(IllegalDefinitionException.class, program::compile);
+    }
+
+    /**
+     * Error por dividir una cantidad entre cero.
+     */
+    @Test
+    void divisionByZero() {
+        PizzaCodeSource program = new PizzaCodeSource("""
+                include 'basicmenu';
+                make big pizza add PEPPERONI(10 / 0);
+                """);
+
+        assertThrows(InvalidArithmeticOperationException.class, program::compile);
+    }
+
+    /**
+     * Error por una cantidad mayor al máximo de los números.
+     */
+    @Test
+    void quantityOverflow() {
+        PizzaCodeSource program = new PizzaCodeSource("""
+                include 'basicmenu';
+                make big pizza add PEPPERONI(2147483647 + 1);
+                """);
+
+        assertThrows(InvalidArithmeticOperationException.class, program::compile);
+    }
+
+    /**
+     * Error por una cantidad sin operaciones mayor al máximo de los números.
+     */
+    @Test
+    void literalOverflow() {
+        PizzaCodeSource program = new PizzaCodeSource("""
+                include 'basicmenu';
+                make big pizza add PEPPERONI(99999999999);
+                """);
+
+        assertThrows(InvalidArithmeticOperationException.class, program::compile);
+    }
+
+    /**
+     * Una cantidad muy larga no debe desbordar la pila del compilador.
+     */
+    @Test
+    void longQuantity() {
+        PizzaCodeSource program = new PizzaCodeSource("""
+                include 'basicmenu';
+                make big pizza add PEPPERONI(%s1);
+                """.formatted("1 + 2 * 3 - ".repeat(50_000)));
+
+        assertDoesNotThrow(program::compile);
+    }
+
+    /**
+     * Un archivo incluido por varios programas se compila una vez y comparte sus símbolos.
+     */
+    @Test
+    void sharedInclude() {
+        String code = """
+                include 'basicmenu';
+                make big pizza of MEXICANA;
+                """;
+
+        IncludeCache.clear();
+        SemanticAnalyzer.Intermediate first = new PizzaCodeSource(code).compile();
+        assertEquals(1, IncludeCache.size());
+        SemanticAnalyzer.Intermediate second = new PizzaCodeSource(code).compile();
+
+        //the names are kept in lower case
+        Specialty mexicana = first.symbols.getSpecialty("mexicana");
+        assertNotNull(mexicana);
+        assertEquals(1, IncludeCache.size());
+        assertSame(mexicana, second.symbols.getSpecialty("mexicana"));
+    }
+
+    /**
+     * Un archivo incluido que cambia se compila otra vez, y su resultado reemplaza al anterior.
+     */
+    @Test
+    void changedInclude() throws IOException {
+        Path include = Files.createTempFile("changed", ".pf");
+        String name = include.toAbsolutePath().toString().replace('\\', '/');
+        String code = "include '%s';".formatted(name.substring(0, name.length() - ".pf".length()));
+
+        IncludeCache.clear();
+        Files.writeString(include, "define ingredient FIRST ('ingredients/olive.png');");
+        SemanticAnalyzer.Intermediate first = new PizzaCodeSource(code).compile();
+
+        Files.writeString(include, "define ingredient SECOND ('ingredients/olive.png') resize 20;");
+        assertTrue(include.toFile().setLastModified(include.toFile().lastModified() + 2000));
+        SemanticAnalyzer.Intermediate second = new PizzaCodeSource(code).compile();
+
+        assertNotNull(first.symbols.getIngredient("first"));
+        assertNull(second.symbols.getIngredient("first"));
+        assertNotNull(second.symbols.getIngredient("second"));
+        assertEquals(1, IncludeCache.size());
+    }
+
+    /**
+     * Error por dos archivos incluidos por el mismo programa que se incluyen entre sí, aunque se
+     * compilan al mismo tiempo.
+     */
+    @Test
+    void siblingIncludeCycle() throws IOException {
+        Path folder = Files.createTempDirectory("cycle");
+        String name = folder.toAbsolutePath().toString().replace('\\', '/');
+        Files.writeString(folder.resolve("a.pf"), "include '%s/b';".formatted(name));
+        Files.writeString(folder.resolve("b.pf"), "include '%s/a';".formatted(name));
+
+        PizzaCodeSource program = new PizzaCodeSource("""
+                include '%1$s/a';
+                include '%1$s/b';
+                """.formatted(name));
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10),
+                () -> assertThrows(InvalidPathException.class, program::compile));
+    }
+
+    /**
+     * Cada programa que incluye un archivo dibuja su propia copia de las pizzas de ese archivo.
+     */
+    @Test
+    void includedPizzaCopied() throws IOException {
+        Path include = Files.createTempFile("shared", ".pf");
+        Files.writeString(include, """
+                include 'basicmenu';
+                make big pizza of MEXICANA;
+                """);
+        String name = include.toAbsolutePath().toString().replace('\\', '/');
+        String code = "include '%s';".formatted(name.substring(0, name.length() - ".pf".length()));
+
+        Make first = firstMake(new PizzaCodeSource(code).compile());
+        Make second = firstMake(new PizzaCodeSource(code).compile());
+
+        assertNotNull(first.getInstruction());
+        assertNotSame(first.getInstruction(), second.getInstruction());
+    }
+
+    private static Make firstMake(SemanticAnalyzer.Intermediate intermediate) {
+        return intermediate.instructions.stream()
+                .filter(Make.class::isInstance)
+                .map(Make.class::cast)
+                .findFirst()
+                .orElseThrow();
+    }
+
+    /**
+     * La misma semilla debe dibujar los mismos píxeles en orden que con varios trabajadores, por
+     * partes, con el análisis léxico en su hilo y con el árbol en arreglos; otra semilla no.
+     */
+    @Test
+    void seedDrawsSameImage() throws IOException {
+        String code = """
+                include 'basicmenu';
+                make medium pizza of MEXICANA add OLIVE(12) save as 'seeded';
+                make personal pizza of HAWAIANA save as 'other';
+                """;
+
+        BufferedImage serial = drawSeeded(code, 42, false, 1, 0);
+        BufferedImage parallel = drawSeeded(code, 42, true, 4, 128);
+        BufferedImage otherSeed = drawSeeded(code, 43, false, 1, 0);
+
+        assertEquals(serial.getWidth(), parallel.getWidth());
+        assertArrayEquals(pixels(serial), pixels(parallel));
+        assertFalse(Arrays.equals(pixels(serial), pixels(otherSeed)));
+    }
+
+    private static BufferedImage drawSeeded(String code, long seed, boolean parallel, int workers, int tileSize)
+            throws IOException {
+        Path source = Files.createTempDirectory("seeded").resolve("program.pf");
+        Files.writeString(source, code);
+
+        PizzaCodeSource program = new PizzaCodeSource(source.toFile(), false);
+        program.setSeed(seed);
+        program.setPipelined(parallel);
+        program.setFlatAST(parallel);
+
+        DrawManager drawer = new DrawManager(program.compile(), "png");
+        drawer.setWorkers(workers);
+        drawer.setTileSize(tileSize);
+        drawer.draw();
+
+        return ImageIO.read(source.resolveSibling("seeded.png").toFile());
+    }
+
+    private static int[] pixels(BufferedImage image) {
+        return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+    }
+
     /**
      * Error por definir un ingrediente con cero toppings.
      */
@@ -0,0 +1,78 @@
+package program;
+
+import compiler.semantic.SemanticAnalyzer;
+import language.util.DrawOp;
+import language.util.Java2DBackend;
+import language.util.TileRenderer;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Casos de los planes de dibujo de un programa.
+ */
+class RenderPlanTest {
+
+    private static SemanticAnalyzer.Intermediate compile() throws IOException {
+        Path source = Files.createTempDirectory("plan").resolve("program.pf");
+        Files.writeString(source, """
+                include 'basicmenu';
+                make medium pizza of MEXICANA add OLIVE(12);
+                make personal pizza of HAWAIANA save as 'named';
+                make personal pizza add HAM(3);
+                """);
+        return new PizzaCodeSource(source.toFile(), false).compile();
+    }
+
+    /**
+     * Bajar las mismas instrucciones dos veces con la misma semilla debe dar las mismas páginas y
+     * operaciones, y los mismos nombres a las pizzas sin nombre.
+     */
+    @Test
+    void lowerTwiceGivesSamePlan() throws IOException {
+        SemanticAnalyzer.Intermediate intermediate = compile();
+
+        RenderPlan first = RenderPlan.lower(intermediate.instructions, 42, Runnable::run);
+        RenderPlan second = RenderPlan.lower(intermediate.instructions, 42, Runnable::run);
+
+        assertEquals(first.pages(), second.pages());
+        assertEquals(first.images().keySet(), second.images().keySet());
+        assertEquals(List.of("pizza0", "named", "pizza1"),
+                first.pages().stream().map(RenderPlan.Page::name).toList());
+
+        //every blit names an image of the plan
+        first.pages().forEach(page -> page.ops().forEach(op -> {
+            if (op instanceof DrawOp.Blit blit) assertTrue(first.images().containsKey(blit.sprite()), blit.sprite());
+        }));
+    }
+
+    /**
+     * Dos planes iguales deben dibujar los mismos píxeles con Java2D, y por partes.
+     */
+    @Test
+    void samePlanDrawsSamePixels() throws IOException {
+        SemanticAnalyzer.Intermediate intermediate = compile();
+
+        RenderPlan first = RenderPlan.lower(intermediate.instructions, 42, Runnable::run);
+        RenderPlan second = RenderPlan.lower(intermediate.instructions, 42, Runnable::run);
+
+        for (int i = 0; i < first.pages().size(); i++) {
+            BufferedImage expected = first.pages().get(i).render(new Java2DBackend(first.images()));
+            BufferedImage drawn = second.pages().get(i).render(new Java2DBackend(second.images()));
+            BufferedImage tiled = second.pages().get(i).render(new TileRenderer(128, second.images()));
+
+            assertArrayEquals(pixels(expected), pixels(drawn));
+            assertArrayEquals(pixels(expected), pixels(tiled));
+        }
+    }
+
+    private static int[] pixels(BufferedImage image) {
+        return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+    }
+}